@@ -0,0 +1,83 @@
+#!/usr/bin/env bash
+#
+# Concurrent delta download load test against a running instance.
+#
+# For each concurrency level, fires REQUESTS downloads of /api/delta with that many in flight and prints
+# throughput and latency percentiles, plus the platform thread peak reported by actuator (jvm.threads.peak;
+# virtual threads are not counted, so it stays flat when requests run on them).
+# A run for AS_OF must already exist (POST /api/admin/ingest).
+#
+# Usage:
+#   scripts/load-test-export.sh                                  # defaults below
+#   AS_OF=2026-01-17 FEED=PAYMENT_TRANSACTION LEVELS="50 200 500" REQUESTS=1000 scripts/load-test-export.sh
+#   QUERY="&compression=gzip&mode=copy" scripts/load-test-export.sh
+#   LABEL=platform RESULTS=load.csv scripts/load-test-export.sh   # one side of a virtual/platform comparison
+#
+# Environment:
+#   BASE_URL  (http://localhost:8080)   AS_OF   (2026-01-17)   FEED  (LOAN_MASTER)
+#   LEVELS    ("10 50 100 200 500")     REQUESTS (per level; default 4 x level)
+#   QUERY     extra query string appended to the URL (format/mode/compression)
+#   TIMEOUT   per-request timeout in seconds (300)
+#   LABEL     name of the configuration under test, printed and recorded with each level (run)
+#   RESULTS   CSV file the levels are appended to (label first), for comparing runs; unset = print only
+#
+# Requires bash, curl, awk, sort, xargs.
+
+set -euo pipefail
+
+BASE_URL="${BASE_URL:-http://localhost:8080}"
+AS_OF="${AS_OF:-2026-01-17}"
+FEED="${FEED:-LOAN_MASTER}"
+LEVELS="${LEVELS:-10 50 100 200 500}"
+QUERY="${QUERY:-}"
+TIMEOUT="${TIMEOUT:-300}"
+LABEL="${LABEL:-run}"
+RESULTS="${RESULTS:-}"
+
+URL="${BASE_URL}/api/delta?asOf=${AS_OF}&feed=${FEED}${QUERY}"
+WORK="$(mktemp -d)"
+trap 'rm -rf "$WORK"' EXIT
+
+metric() {
+  curl -s "${BASE_URL}/actuator/metrics/$1" | sed -n 's/.*"value":\([0-9.E+]*\).*/\1/p' | head -1
+}
+
+status="$(curl -s -o /dev/null -w '%{http_code}' --max-time "$TIMEOUT" "$URL")"
+if [[ "$status" != "200" ]]; then
+  echo "Warm-up request to $URL returned HTTP $status; is there a successful run for asOf=$AS_OF?" >&2
+  exit 1
+fi
+
+echo "url=$URL label=$LABEL"
+if [[ -n "$RESULTS" && ! -s "$RESULTS" ]]; then
+  echo "label,conc,reqs,ok,errors,wall_s,req_s,MB_s,p50_ms,p95_ms,p99_ms,max_ms,threads_peak" > "$RESULTS"
+fi
+printf '%-6s %-6s %-5s %-6s %-8s %-8s %-9s %-8s %-8s %-8s %-8s %-8s\n' \
+  conc reqs ok errors wall_s req_s MB_s p50_ms p95_ms p99_ms max_ms threads_peak
+
+for level in $LEVELS; do
+  requests="${REQUESTS:-$((level * 4))}"
+  out="$WORK/level-$level.txt"
+
+  start="$(date +%s.%N)"
+  seq "$requests" | xargs -P "$level" -I{} \
+    curl -s -o /dev/null --max-time "$TIMEOUT" -w '%{http_code} %{time_total} %{size_download}\n' "$URL" \
+    > "$out" || true
+  end="$(date +%s.%N)"
+
+  peak="$(metric jvm.threads.peak)"
+
+  sort -k2,2n "$out" | awk -v wall="$(awk -v s="$start" -v e="$end" 'BEGIN { print e - s }')" -v level="$level" -v reqs="$requests" -v peak="${peak:-?}" -v label="$LABEL" -v results="$RESULTS" '
+    { n++; t[n] = $2 * 1000; if ($1 == 200) { ok++; bytes += $3 } else { err++ } }
+    function pct(p,   i) { i = int(n * p + 0.999999); if (i < 1) i = 1; return t[i] }
+    END {
+      printf "%-6d %-6d %-5d %-6d %-8.2f %-8.1f %-9.1f %-8.0f %-8.0f %-8.0f %-8.0f %-8s\n",
+        level, reqs, ok, err + 0, wall, ok / wall, bytes / 1048576 / wall,
+        pct(0.50), pct(0.95), pct(0.99), t[n], peak
+      if (results != "") {
+        printf "%s,%d,%d,%d,%d,%.2f,%.1f,%.1f,%.0f,%.0f,%.0f,%.0f,%s\n",
+          label, level, reqs, ok, err + 0, wall, ok / wall, bytes / 1048576 / wall,
+          pct(0.50), pct(0.95), pct(0.99), t[n], peak >> results
+      }
+    }'
+done
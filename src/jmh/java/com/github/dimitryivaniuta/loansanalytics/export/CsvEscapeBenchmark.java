@@ -0,0 +1,70 @@
+package com.github.dimitryivaniuta.loansanalytics.export;
+
+import com.github.dimitryivaniuta.loansanalytics.ingest.SyntheticFeeds;
+import com.github.dimitryivaniuta.loansanalytics.ingest.feed.FeedDefinition;
+import com.github.dimitryivaniuta.loansanalytics.ingest.feed.FeedName;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * CSV escaping of a delta export row ({@code DeltaCsvWriter.csv}): entity key, changed fields and
+ * before/after JSON payloads shaped like {@code to_jsonb(row)::text} for each feed. Scores are per row.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CsvEscapeBenchmark {
+
+    private static final int ROWS = 1024;
+
+    @Param({"LOAN_MASTER", "BORROWER", "COBORROWER", "COLLATERAL", "PAYMENT_SCHEDULE", "PAYMENT_TRANSACTION",
+            "DELINQUENCY", "RATE", "ESCROW", "MODIFICATION", "CONTACT_CRM"})
+    FeedName feed;
+
+    private String[][] rows;
+
+    @Setup
+    public void setUp() {
+        FeedDefinition definition = SyntheticFeeds.feed(feed);
+        String pk = definition.primaryKeyColumns().get(0);
+        String changedCol = definition.dataColumns().get(definition.dataColumns().size() - 1);
+        rows = new String[ROWS][];
+        for (int i = 0; i < ROWS; i++) {
+            String before = SyntheticFeeds.jsonRow(definition, i);
+            String after = SyntheticFeeds.jsonRow(definition, i + 1);
+            rows[i] = new String[]{
+                    feed.name(),
+                    "U",
+                    "{\"" + pk + "\": \"" + pk.substring(0, 2).toUpperCase(java.util.Locale.ROOT) + "-" + (1_000_000 + i) + "\"}",
+                    "{\"" + changedCol + "\": {\"after\": \"x\", \"before\": \"y\"}}",
+                    before,
+                    after
+            };
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void csv(Blackhole bh) {
+        for (String[] row : rows) {
+            for (String v : row) {
+                bh.consume(DeltaCsvWriter.csv(v));
+            }
+        }
+    }
+}
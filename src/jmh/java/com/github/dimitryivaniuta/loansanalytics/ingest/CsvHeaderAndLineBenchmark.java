@@ -0,0 +1,72 @@
+package com.github.dimitryivaniuta.loansanalytics.ingest;
+
+import com.github.dimitryivaniuta.loansanalytics.ingest.feed.FeedDefinition;
+import com.github.dimitryivaniuta.loansanalytics.ingest.feed.FeedName;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * {@code PostgresCopyService.parseCsvLine} and the header mapping in {@link FeedDefinition}, per feed schema.
+ * Scores are per line / per header.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CsvHeaderAndLineBenchmark {
+
+    private static final int LINES = 1024;
+
+    @Param({"LOAN_MASTER", "BORROWER", "COBORROWER", "COLLATERAL", "PAYMENT_SCHEDULE", "PAYMENT_TRANSACTION",
+            "DELINQUENCY", "RATE", "ESCROW", "MODIFICATION", "CONTACT_CRM"})
+    FeedName feed;
+
+    private FeedDefinition definition;
+    private String[] lines;
+    private List<String> rawHeaders;
+
+    @Setup
+    public void setUp() {
+        definition = SyntheticFeeds.feed(feed);
+        lines = new String[LINES];
+        for (int i = 0; i < LINES; i++) {
+            lines[i] = SyntheticFeeds.row(definition, i);
+        }
+        rawHeaders = SyntheticFeeds.rawHeaders(definition);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public void parseCsvLine(Blackhole bh) {
+        for (String line : lines) {
+            bh.consume(PostgresCopyService.parseCsvLine(line));
+        }
+    }
+
+    @Benchmark
+    public void normalizeHeader(Blackhole bh) {
+        for (String h : rawHeaders) {
+            bh.consume(FeedDefinition.normalizeHeader(h));
+        }
+    }
+
+    @Benchmark
+    public List<String> mapHeadersToDbColumns() {
+        return definition.mapHeadersToDbColumns(rawHeaders);
+    }
+}
@@ -0,0 +1,122 @@
+package com.github.dimitryivaniuta.loansanalytics.ingest;
+
+import com.github.dimitryivaniuta.loansanalytics.ingest.feed.FeedDefinition;
+import com.github.dimitryivaniuta.loansanalytics.ingest.feed.FeedName;
+import com.github.dimitryivaniuta.loansanalytics.ingest.feed.FeedRegistry;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.flywaydb.core.Flyway;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+/**
+ * Generic {@code jsonb_diff(before, after)} over serialized payloads vs the generated
+ * {@code delta_diff_loan_master(p, c)} over the typed snapshot rows, on two LOAN_MASTER days of
+ * {@code rows} loans each where every {@code changeEvery}-th loan has a new principal_balance.
+ *
+ * <p>Both variants diff every matched pair (no hash pre-filter), so the score is the per-row cost of the diff
+ * itself; both return the number of changed rows.</p>
+ *
+ * <p>Needs a running Postgres (e.g. {@code docker compose up -d}); connection via BENCH_JDBC_URL,
+ * BENCH_JDBC_USER, BENCH_JDBC_PASSWORD. Migrates and seeds a throw-away schema {@value #SCHEMA} per trial
+ * (10M rows per day take a few minutes to seed).</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class DeltaDiffFunctionBenchmark {
+
+    private static final String SCHEMA = "bench_delta_diff";
+    private static final String PAYLOAD = "(to_jsonb(%s) - 'as_of_date' - 'row_hash' - 'row_hash128' - 'source_file' - 'ingested_at')";
+
+    @Param({"10000000"})
+    int rows;
+
+    @Param({"10"})
+    int changeEvery;
+
+    private NamedParameterJdbcTemplate jdbc;
+    private FeedDefinition feed;
+    private Map<String, Object> days;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String url = env("BENCH_JDBC_URL", "jdbc:postgresql://localhost:5452/loans");
+        String user = env("BENCH_JDBC_USER", "loans");
+        String password = env("BENCH_JDBC_PASSWORD", "loans");
+
+        Flyway flyway = Flyway.configure()
+                .dataSource(url, user, password)
+                .schemas(SCHEMA)
+                .cleanDisabled(false)
+                .load();
+        flyway.clean();
+        flyway.migrate();
+
+        var ds = new DriverManagerDataSource(url + (url.contains("?") ? "&" : "?") + "currentSchema=" + SCHEMA, user, password);
+        jdbc = new NamedParameterJdbcTemplate(ds);
+        feed = new FeedRegistry().get(FeedName.LOAN_MASTER);
+
+        LocalDate day = LocalDate.of(2026, 1, 17);
+        days = Map.of("prev", day.minusDays(1), "day", day, "rows", rows, "every", changeEvery);
+        for (String d : new String[]{"prev", "day"}) {
+            jdbc.queryForObject("SELECT ensure_daily_partition('snap_loan_master', :d)", Map.of("d", days.get(d)), String.class);
+        }
+        seedDay("prev", "g");
+        seedDay("day", "CASE WHEN g % :every = 0 THEN g + 1 ELSE g END");
+        jdbc.getJdbcTemplate().execute("VACUUM ANALYZE snap_loan_master");
+    }
+
+    private void seedDay(String dayParam, String balanceExpr) {
+        jdbc.update("""
+                INSERT INTO snap_loan_master(as_of_date, loan_id, borrower_id, product_code, status, origination_date,
+                  maturity_date, principal_balance, currency, interest_rate, ltv, branch_id, region, last_modified_at,
+                  row_hash, source_file, ingested_at)
+                SELECT :%s, 'L' || lpad(g::text, 9, '0'), 'B' || g, 'HOME', 'OPEN', DATE '2024-01-01',
+                       DATE '2034-01-01', (%s)::numeric / 100, 'EUR', 0.035, 0.8, 'BR' || (g %% 50), 'NORTH',
+                       TIMESTAMPTZ '2026-01-01T00:00:00Z', 'x', 'bench.csv', now()
+                FROM generate_series(1, :rows) g
+                """.formatted(dayParam, balanceExpr), days);
+    }
+
+    private long countChanged(String diffExpr) {
+        Long n = jdbc.queryForObject("""
+                SELECT count(*)
+                FROM snap_loan_master p
+                JOIN snap_loan_master c ON c.as_of_date = :day AND c.loan_id = p.loan_id
+                WHERE p.as_of_date = :prev AND %s <> '{}'::jsonb
+                """.formatted(diffExpr), days, Long.class);
+        return n == null ? 0 : n;
+    }
+
+    private static String env(String name, String fallback) {
+        String v = System.getenv(name);
+        return v == null || v.isBlank() ? fallback : v;
+    }
+
+    @Benchmark
+    public long jsonbDiff() {
+        return countChanged("jsonb_diff(" + PAYLOAD.formatted("p") + ", " + PAYLOAD.formatted("c") + ")");
+    }
+
+    @Benchmark
+    public long typedDiffFunction() {
+        return countChanged(feed.diffFunctionName() + "(p, c)");
+    }
+}
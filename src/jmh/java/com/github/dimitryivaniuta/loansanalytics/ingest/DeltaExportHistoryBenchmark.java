@@ -0,0 +1,105 @@
+package com.github.dimitryivaniuta.loansanalytics.ingest;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.flywaydb.core.Flyway;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+/**
+ * Export query latency for the newest day while the amount of retained delta history grows.
+ * With delta_event partitioned by as_of_date the query touches one partition, so the score should stay flat
+ * across {@code historyDays}.
+ *
+ * <p>Needs a running Postgres (e.g. {@code docker compose up -d}); connection via BENCH_JDBC_URL,
+ * BENCH_JDBC_USER, BENCH_JDBC_PASSWORD. Migrates and seeds a throw-away schema {@value #SCHEMA} per trial.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DeltaExportHistoryBenchmark {
+
+    private static final String SCHEMA = "bench_delta_history";
+
+    @Param({"1", "30", "180"})
+    int historyDays;
+
+    @Param({"20000"})
+    int rowsPerDay;
+
+    private DeltaRepository deltaRepository;
+    private UUID latestRunId;
+    private LocalDate latestDay;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String url = env("BENCH_JDBC_URL", "jdbc:postgresql://localhost:5452/loans");
+        String user = env("BENCH_JDBC_USER", "loans");
+        String password = env("BENCH_JDBC_PASSWORD", "loans");
+
+        Flyway flyway = Flyway.configure()
+                .dataSource(url, user, password)
+                .schemas(SCHEMA)
+                .cleanDisabled(false)
+                .load();
+        flyway.clean();
+        flyway.migrate();
+
+        var ds = new DriverManagerDataSource(url + (url.contains("?") ? "&" : "?") + "currentSchema=" + SCHEMA, user, password);
+        var jdbc = new NamedParameterJdbcTemplate(ds);
+        deltaRepository = new DeltaRepository(jdbc);
+
+        latestDay = LocalDate.of(2026, 1, 17);
+        for (int d = historyDays - 1; d >= 0; d--) {
+            LocalDate day = latestDay.minusDays(d);
+            UUID runId = UUID.randomUUID();
+            deltaRepository.ensureDeltaPartition(day);
+            seedDay(jdbc, runId, day);
+            latestRunId = runId;
+        }
+        jdbc.getJdbcTemplate().execute("ANALYZE delta_event");
+    }
+
+    private void seedDay(NamedParameterJdbcTemplate jdbc, UUID runId, LocalDate day) {
+        var params = Map.<String, Object>of("id", runId, "day", day, "rows", rowsPerDay);
+        jdbc.update("""
+                INSERT INTO job_run(id, as_of_date, status, finished_at) VALUES (:id, :day, 'SUCCESS', now())
+                """, params);
+        jdbc.update("""
+                INSERT INTO delta_event(job_run_id, feed_name, as_of_date, op, entity_key, before_row, after_row, changed_fields)
+                SELECT :id, 'LOAN_MASTER', :day, 'U',
+                       jsonb_build_object('loan_id', k),
+                       jsonb_build_object('loan_id', k, 'principal_balance', g),
+                       jsonb_build_object('loan_id', k, 'principal_balance', g + 1),
+                       jsonb_build_object('principal_balance', jsonb_build_object('before', g, 'after', g + 1))
+                FROM generate_series(1, :rows) g, LATERAL (SELECT 'L' || lpad(g::text, 9, '0') AS k) key
+                """, params);
+    }
+
+    private static String env(String name, String fallback) {
+        String v = System.getenv(name);
+        return v == null || v.isBlank() ? fallback : v;
+    }
+
+    @Benchmark
+    public int exportLatestDay() {
+        return deltaRepository.findDeltaRows(latestRunId, "LOAN_MASTER", latestDay).size();
+    }
+}
@@ -0,0 +1,89 @@
+package com.github.dimitryivaniuta.loansanalytics.ingest;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * The previous, line-based implementation of {@link PrefixingCsvInputStream}
+ * ({@code BufferedReader.readLine()}, per-row String concatenation, single-byte {@code read()}).
+ *
+ * <p>Kept only as the benchmark baseline; it splits quoted fields that contain newlines.
+ */
+final class LineReaderPrefixingCsvInputStream extends InputStream {
+
+    private final BufferedReader reader;
+    private final UUID runId;
+    private final LocalDate asOf;
+    private final String sourceFile;
+
+    private byte[] buffer = new byte[0];
+    private int pos = 0;
+    private boolean firstLine = true;
+    private boolean closed = false;
+
+    LineReaderPrefixingCsvInputStream(InputStream original, UUID runId, LocalDate asOf, String sourceFile) {
+        this.reader = new BufferedReader(new InputStreamReader(original, StandardCharsets.UTF_8));
+        this.runId = runId;
+        this.asOf = asOf;
+        this.sourceFile = sourceFile;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (closed) {
+            return -1;
+        }
+
+        if (pos >= buffer.length) {
+            if (!fillBuffer()) {
+                closed = true;
+                return -1;
+            }
+        }
+        return buffer[pos++] & 0xFF;
+    }
+
+    private boolean fillBuffer() throws IOException {
+        String line = reader.readLine();
+        if (line == null) {
+            return false;
+        }
+
+        String prefix = runId + "," + asOf + "," + csvQuote(sourceFile) + ",";
+        String out;
+        if (firstLine) {
+            // Header
+            out = "job_run_id,as_of_date,source_file," + line;
+            firstLine = false;
+        } else {
+            out = prefix + line;
+        }
+
+        // COPY expects newline-separated records.
+        out = out + "\n";
+        buffer = out.getBytes(StandardCharsets.UTF_8);
+        pos = 0;
+        return true;
+    }
+
+    private static String csvQuote(String v) {
+        String s = v == null ? "" : v;
+        // If the value contains comma, quote, or newline - quote and escape.
+        boolean mustQuote = s.indexOf(',') >= 0 || s.indexOf('"') >= 0 || s.indexOf('\n') >= 0 || s.indexOf('\r') >= 0;
+        if (!mustQuote) {
+            return s;
+        }
+        return '"' + s.replace("\"", "\"\"") + '"';
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+        closed = true;
+    }
+}
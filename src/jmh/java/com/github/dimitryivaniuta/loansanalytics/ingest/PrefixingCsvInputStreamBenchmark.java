@@ -0,0 +1,118 @@
+package com.github.dimitryivaniuta.loansanalytics.ingest;
+
+import com.github.dimitryivaniuta.loansanalytics.ingest.feed.FeedDefinition;
+import com.github.dimitryivaniuta.loansanalytics.ingest.feed.FeedName;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Line-based vs byte-level prefixer, drained the way {@code CopyManager.copyIn} does (64 KiB bulk reads).
+ * One synthetic file per feed schema, at the ~300k rows of a daily file.
+ *
+ * <p>{@code validated} adds per-record validation (all rows valid, so the cost is tokenizing and checking);
+ * {@code validatedAndHashed} is the full ingest path with {@code row-hash=JAVA}, compare it with {@code hashed}.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PrefixingCsvInputStreamBenchmark {
+
+    @Param({"LOAN_MASTER", "BORROWER", "COBORROWER", "COLLATERAL", "PAYMENT_SCHEDULE", "PAYMENT_TRANSACTION",
+            "DELINQUENCY", "RATE", "ESCROW", "MODIFICATION", "CONTACT_CRM"})
+    FeedName feed;
+
+    @Param({"300000"})
+    int rows;
+
+    private final UUID runId = UUID.randomUUID();
+    private final LocalDate asOf = LocalDate.of(2026, 1, 17);
+    private final byte[] sink = new byte[64 * 1024];
+    private Path file;
+    private FeedDefinition definition;
+    private CsvRecordValidator validator;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        definition = SyntheticFeeds.feed(feed);
+        file = SyntheticFeeds.writeFile(definition, rows);
+        validator = new CsvRecordValidator(definition, SyntheticFeeds.columnTypes(definition), definition.dataColumns());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public long lineReader() throws IOException {
+        try (InputStream in = new LineReaderPrefixingCsvInputStream(Files.newInputStream(file), runId, asOf, "feed.csv")) {
+            return drain(in);
+        }
+    }
+
+    @Benchmark
+    public long byteLevel() throws IOException {
+        try (InputStream in = new PrefixingCsvInputStream(file, runId, asOf, "feed.csv")) {
+            return drain(in);
+        }
+    }
+
+    @Benchmark
+    public long validated() throws IOException {
+        try (InputStream in = stream(null, validator)) {
+            return drain(in);
+        }
+    }
+
+    @Benchmark
+    public long hashed() throws IOException {
+        try (InputStream in = stream(new RowHasher(definition.dataColumns(), definition.dataColumns()), null)) {
+            return drain(in);
+        }
+    }
+
+    @Benchmark
+    public long validatedAndHashed() throws IOException {
+        try (InputStream in = stream(new RowHasher(definition.dataColumns(), definition.dataColumns()), validator)) {
+            return drain(in);
+        }
+    }
+
+    private InputStream stream(RowHasher hasher, CsvRecordValidator recordValidator) throws IOException {
+        return new PrefixingCsvInputStream(file, 0, Long.MAX_VALUE, true,
+                PrefixingCsvInputStream.rowPrefix(runId, asOf, "feed.csv"), hasher, recordValidator,
+                (rec, off, len, reason) -> {
+                    throw new IOException("unexpected reject: " + reason);
+                });
+    }
+
+    private long drain(InputStream in) throws IOException {
+        long total = 0;
+        int n;
+        while ((n = in.read(sink)) > 0) {
+            total += n;
+        }
+        return total;
+    }
+}
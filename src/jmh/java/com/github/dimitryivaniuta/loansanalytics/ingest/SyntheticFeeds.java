@@ -0,0 +1,171 @@
+package com.github.dimitryivaniuta.loansanalytics.ingest;
+
+import com.github.dimitryivaniuta.loansanalytics.ingest.ColumnTypeCatalog.ColumnType;
+import com.github.dimitryivaniuta.loansanalytics.ingest.feed.FeedDefinition;
+import com.github.dimitryivaniuta.loansanalytics.ingest.feed.FeedName;
+import com.github.dimitryivaniuta.loansanalytics.ingest.feed.FeedRegistry;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Deterministic synthetic inputs for the benchmarks, shaped after the {@link FeedRegistry} schemas.
+ *
+ * <p>Values are derived from column names (ids, dates, timestamps, amounts, flags, free text with commas),
+ * which is enough to exercise the same code paths as real feed files.</p>
+ */
+public final class SyntheticFeeds {
+
+    public static final FeedRegistry REGISTRY = new FeedRegistry();
+
+    private SyntheticFeeds() {
+    }
+
+    public static FeedDefinition feed(FeedName name) {
+        return REGISTRY.get(name);
+    }
+
+    public static String header(FeedDefinition feed) {
+        return String.join(",", feed.dataColumns());
+    }
+
+    /**
+     * Header as a vendor might send it: {@code "Loan Id"}, {@code "Zip/Postal Code"}, ...
+     */
+    public static List<String> rawHeaders(FeedDefinition feed) {
+        List<String> out = new ArrayList<>(feed.dataColumns().size());
+        for (String col : feed.dataColumns()) {
+            StringBuilder sb = new StringBuilder();
+            for (String part : col.split("_")) {
+                if (!sb.isEmpty()) {
+                    sb.append(col.startsWith("zip") && sb.length() == 3 ? "/" : " ");
+                }
+                sb.append(Character.toUpperCase(part.charAt(0))).append(part.substring(1));
+            }
+            out.add(sb.toString());
+        }
+        return out;
+    }
+
+    public static String row(FeedDefinition feed, int i) {
+        StringBuilder sb = new StringBuilder(192);
+        for (String col : feed.dataColumns()) {
+            if (!sb.isEmpty()) {
+                sb.append(',');
+            }
+            String v = value(col, i);
+            if (v.indexOf(',') >= 0) {
+                sb.append('"').append(v).append('"');
+            } else {
+                sb.append(v);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Row rendered like {@code to_jsonb(row)::text}, i.e. what ends up in delta_event.before_row/after_row.
+     */
+    public static String jsonRow(FeedDefinition feed, int i) {
+        StringBuilder sb = new StringBuilder(320).append('{');
+        for (String col : feed.dataColumns()) {
+            if (sb.length() > 1) {
+                sb.append(", ");
+            }
+            String v = value(col, i);
+            sb.append('"').append(col).append("\": ");
+            if (isNumeric(col) || isInteger(col) || col.endsWith("_flag")) {
+                sb.append(v);
+            } else {
+                sb.append('"').append(v).append('"');
+            }
+        }
+        return sb.append('}').toString();
+    }
+
+    public static Path writeFile(FeedDefinition feed, int rows) throws IOException {
+        Path file = Files.createTempFile(feed.name().name().toLowerCase(Locale.ROOT) + "_", ".csv");
+        try (BufferedWriter w = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            w.write(header(feed));
+            w.write('\n');
+            for (int i = 0; i < rows; i++) {
+                w.write(row(feed, i));
+                w.write('\n');
+            }
+        }
+        return file;
+    }
+
+    /**
+     * Column types as {@link ColumnTypeCatalog} would report them, consistent with {@link #value}.
+     */
+    public static List<ColumnType> columnTypes(FeedDefinition feed) {
+        List<ColumnType> out = new ArrayList<>(feed.dataColumns().size());
+        for (String col : feed.dataColumns()) {
+            String type;
+            if (col.endsWith("_flag")) {
+                type = "boolean";
+            } else if (isInteger(col)) {
+                type = "integer";
+            } else if (isNumeric(col)) {
+                type = "numeric";
+            } else if (col.endsWith("_at") || col.equals("created_date") || col.equals("modified_date")) {
+                type = "timestamp with time zone";
+            } else if (col.endsWith("_date") || col.equals("date_of_birth")) {
+                type = "date";
+            } else {
+                type = "text";
+            }
+            out.add(new ColumnType(col, type, null, null));
+        }
+        return out;
+    }
+
+    static String value(String col, int i) {
+        if (col.endsWith("_flag")) {
+            return (i & 7) == 0 ? "true" : "false";
+        }
+        if (isInteger(col)) {
+            return Integer.toString(i % 360);
+        }
+        if (isNumeric(col)) {
+            return (10_000 + (i % 90_000)) + "." + (i % 100 < 10 ? "0" : "") + (i % 100);
+        }
+        if (col.endsWith("_at") || col.equals("created_date") || col.equals("modified_date")) {
+            return "2026-01-17T0" + (i % 10) + ":15:00Z";
+        }
+        if (col.endsWith("_date") || col.equals("date_of_birth")) {
+            return "20" + (10 + i % 16) + "-0" + (1 + i % 9) + "-1" + (i % 10);
+        }
+        if (col.endsWith("_id") || col.endsWith("_no") || col.equals("reference")) {
+            return col.substring(0, 2).toUpperCase(Locale.ROOT) + "-" + (1_000_000 + i);
+        }
+        if (col.contains("email")) {
+            return "user" + i + "@example.com";
+        }
+        if (col.contains("phone")) {
+            return "+1-555-" + (1000 + i % 9000);
+        }
+        return switch (col) {
+            case "street" -> i % 500 + " Main St, Apt " + i % 40;
+            case "reason", "employer", "company", "region" -> "Acme Holdings, Unit " + i % 12;
+            default -> col.toUpperCase(Locale.ROOT) + "_" + i % 17;
+        };
+    }
+
+    private static boolean isInteger(String col) {
+        return col.equals("installment_no") || col.equals("days_past_due")
+                || col.equals("year_built") || col.equals("new_term_months");
+    }
+
+    private static boolean isNumeric(String col) {
+        return col.contains("amount") || col.contains("balance") || col.endsWith("rate") || col.contains("premium")
+                || col.contains("reserve") || col.contains("income") || col.endsWith("_due")
+                || col.equals("ltv") || col.equals("margin") || col.equals("cap") || col.equals("floor");
+    }
+}
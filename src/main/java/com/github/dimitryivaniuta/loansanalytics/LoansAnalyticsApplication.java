@@ -1,6 +1,7 @@
 package com.github.dimitryivaniuta.loansanalytics;
 
 import com.github.dimitryivaniuta.loansanalytics.ingest.IngestionOrchestrator;
+import com.github.dimitryivaniuta.loansanalytics.ingest.IngestionRunScheduler;
 import java.time.LocalDate;
 import lombok.RequiredArgsConstructor;
 import org.springframework.boot.CommandLineRunner;
@@ -8,14 +9,17 @@ import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @EnableConfigurationProperties(LoansIngestionProperties.class)
 @RequiredArgsConstructor
 @ConfigurationPropertiesScan
+@EnableScheduling
 public class LoansAnalyticsApplication implements CommandLineRunner {
 
     private final IngestionOrchestrator orchestrator;
+    private final IngestionRunScheduler scheduler;
     private final LoansIngestionProperties props;
 
     public static void main(String[] args) {
@@ -23,7 +27,7 @@ public class LoansAnalyticsApplication implements CommandLineRunner {
     }
 
     /**
-     * Optional CLI entrypoint.
+     * Optional CLI entrypoint. Goes through the run scheduler like the REST endpoint and waits for the run.
      *
      * <p>Example:
      * <pre>
@@ -39,6 +43,6 @@ public class LoansAnalyticsApplication implements CommandLineRunner {
         if (asOf == null) {
             throw new IllegalArgumentException("loans.ingestion.as-of must be provided when CLI is enabled");
         }
-        orchestrator.ingestAndGenerateDelta(asOf);
+        scheduler.submit(asOf, orchestrator.enabledFeeds()).completion().join();
     }
 }
@@ -1,20 +1,264 @@
 package com.github.dimitryivaniuta.loansanalytics;
 
+import com.github.dimitryivaniuta.loansanalytics.export.Compression;
+import com.github.dimitryivaniuta.loansanalytics.ingest.feed.FeedName;
 import java.nio.file.Path;
+import java.time.DayOfWeek;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
 
 @ConfigurationProperties(prefix = "loans.ingestion")
 public record LoansIngestionProperties(
         Path inputDir,
         boolean cliEnabled,
         LocalDate asOf,
-        List<String> enabledFeeds
+        List<String> enabledFeeds,
+        // max feeds processed concurrently within one run (1 = sequential); capped by the Hikari pool size
+        int feedParallelism,
+        Copy copy,
+        Delta delta,
+        Retention retention,
+        Export export,
+        // where snapshot row hashes are computed: SQL (SHA-256 of to_jsonb, hex) or JAVA (128-bit, during COPY)
+        RowHash rowHash,
+        // audit counts via COUNT(*) over staging and snapshot instead of the COPY/upsert row counts
+        boolean verifyCounts,
+        Validation validation,
+        Runs runs,
+        // DAILY = full snap_* copy per day; VERSIONED = ver_* row versions written only when a row changes
+        SnapshotStorage snapshotStorage,
+        Baseline baseline,
+        MetadataCache cache
 ) {
     public LoansIngestionProperties {
         if (enabledFeeds == null || enabledFeeds.isEmpty()) {
             enabledFeeds = List.of("LOAN_MASTER", "PAYMENT_TRANSACTION");
         }
+        if (feedParallelism < 1) {
+            feedParallelism = 1;
+        }
+        if (copy == null) {
+            copy = new Copy(1, null);
+        }
+        if (delta == null) {
+            delta = new Delta(null, false);
+        }
+        if (retention == null) {
+            retention = new Retention(false, 0, 0, false, 0);
+        }
+        if (export == null) {
+            export = new Export(0, 0, null);
+        }
+        if (rowHash == null) {
+            rowHash = RowHash.SQL;
+        }
+        if (validation == null) {
+            validation = new Validation(false, 0, null);
+        }
+        if (runs == null) {
+            runs = new Runs(0, 0);
+        }
+        if (snapshotStorage == null) {
+            snapshotStorage = SnapshotStorage.DAILY;
+        }
+        if (baseline == null) {
+            baseline = new Baseline(null, null, null);
+        }
+        if (cache == null) {
+            cache = new MetadataCache(0, null);
+        }
+    }
+
+    public enum RowHash {
+        /** {@code row_hash}: SHA-256 over the row's JSONB text, computed in the upsert */
+        SQL,
+        /** {@code row_hash128}: MurmurHash3 128-bit over the raw CSV fields, computed while streaming into COPY */
+        JAVA
+    }
+
+    public enum SnapshotStorage {
+        /** {@code snap_*}: every row of every day, one partition per day; supports loading days in any order */
+        DAILY,
+        /**
+         * {@code ver_*}: a row version per change, valid {@code [valid_from, valid_to)}; days of a feed are applied
+         * in order and the delta comes from the versions closed/opened on the day (delta buckets and single-pass
+         * do not apply)
+         */
+        VERSIONED
+    }
+
+    public enum BaselineMode {
+        /** the calendar day before asOf */
+        PREVIOUS_DAY,
+        /** the last business day before asOf (weekend days and holidays skipped) */
+        BUSINESS_DAY,
+        /** the latest day before asOf the feed was loaded successfully (job_run_feed) */
+        LAST_SUCCESSFUL
+    }
+
+    /**
+     * Which day's snapshot a feed's delta is compared with, see {@code BaselineStrategy}. {@code weekendDays}
+     * (default Saturday and Sunday) and {@code holidays} form the BUSINESS_DAY calendar.
+     */
+    public record Baseline(BaselineMode mode, Set<DayOfWeek> weekendDays, Set<LocalDate> holidays) {
+        public Baseline {
+            if (mode == null) {
+                mode = BaselineMode.PREVIOUS_DAY;
+            }
+            weekendDays = weekendDays == null ? Set.of(DayOfWeek.SATURDAY, DayOfWeek.SUNDAY) : Set.copyOf(weekendDays);
+            holidays = holidays == null ? Set.of() : Set.copyOf(holidays);
+        }
+    }
+
+    /**
+     * In-memory cache of job_run reads (admin run listings, the export's latest-run lookup): at most
+     * {@code maxSize} entries per cache, each kept for {@code ttl} unless an audit write evicts it first.
+     */
+    public record MetadataCache(long maxSize, Duration ttl) {
+        public MetadataCache {
+            if (maxSize < 1) {
+                maxSize = 1_000;
+            }
+            if (ttl == null || ttl.isNegative() || ttl.isZero()) {
+                ttl = Duration.ofSeconds(30);
+            }
+        }
+    }
+
+    /**
+     * Chunked COPY settings: files larger than {@code chunkSize} are split on record boundaries and loaded
+     * by up to {@code parallelism} concurrent COPY streams, each on its own connection.
+     */
+    public record Copy(int parallelism, DataSize chunkSize) {
+        public Copy {
+            if (parallelism < 1) {
+                parallelism = 1;
+            }
+            if (chunkSize == null || chunkSize.toBytes() <= 0) {
+                chunkSize = DataSize.ofMegabytes(256);
+            }
+        }
+    }
+
+    /**
+     * Delta generation settings. {@code buckets} splits a feed's delta into K key-hash buckets that run
+     * concurrently on separate connections (missing feeds default to 1, i.e. a single statement).
+     * {@code singlePass} writes snapshot and delta in one statement over staging (feeds with one bucket only).
+     */
+    public record Delta(Map<FeedName, Integer> buckets, boolean singlePass) {
+        public Delta {
+            buckets = buckets == null ? Map.of() : Map.copyOf(buckets);
+        }
+
+        public int bucketsFor(FeedName feed) {
+            return Math.max(1, buckets.getOrDefault(feed, 1));
+        }
+
+        public int maxBuckets() {
+            return buckets.values().stream().mapToInt(b -> b).max().orElse(1);
+        }
+
+        /**
+         * Pooled connections a feed holds outside the fan-out limit: its own transaction, plus with buckets the
+         * connection holding the feed's session lock while the bucket statements run.
+         */
+        public int connectionsPerFeed() {
+            return maxBuckets() > 1 ? 2 : 1;
+        }
+    }
+
+    /**
+     * Partition retention: day partitions of delta_event and the snapshot tables older than the given number
+     * of days are dropped (or only detached when {@code detachOnly}, so they can be archived) by the scheduled
+     * retention job. Snapshot retention never goes below 2 days, the delta baseline needs an earlier day.
+     * Per-run staging tables left by failed runs are dropped {@code stagingDays} after the run finished.
+     */
+    public record Retention(boolean enabled, int deltaDays, int snapshotDays, boolean detachOnly, int stagingDays) {
+        public Retention {
+            if (deltaDays < 1) {
+                deltaDays = 90;
+            }
+            if (snapshotDays < 2) {
+                snapshotDays = 35;
+            }
+            if (stagingDays < 1) {
+                stagingDays = 7;
+            }
+        }
+    }
+
+    /**
+     * CSV validation in the ingest stream. When enabled, records with the wrong field count, an empty primary key
+     * or a malformed typed value go to ingest_reject instead of COPY. A feed whose file has more than
+     * {@code maxRejects} rejects (overridable per feed) fails, and so does the run.
+     */
+    public record Validation(boolean enabled, long maxRejects, Map<FeedName, Long> maxRejectsPerFeed) {
+        public Validation {
+            if (maxRejects < 0) {
+                maxRejects = 0;
+            }
+            maxRejectsPerFeed = maxRejectsPerFeed == null ? Map.of() : Map.copyOf(maxRejectsPerFeed);
+        }
+
+        public long maxRejectsFor(FeedName feed) {
+            return maxRejectsPerFeed.getOrDefault(feed, maxRejects);
+        }
+    }
+
+    /**
+     * Run scheduling (REST and CLI): at most {@code maxConcurrent} runs execute at once, never two for the same
+     * day; up to {@code queueCapacity} more wait in a queue, where a request for the same day and feed set as a
+     * queued run is merged into it. Further requests are refused until the queue drains.
+     */
+    public record Runs(int maxConcurrent, int queueCapacity) {
+        public Runs {
+            if (maxConcurrent < 1) {
+                maxConcurrent = 1;
+            }
+            if (queueCapacity < 1) {
+                queueCapacity = 16;
+            }
+        }
+    }
+
+    /**
+     * Delta export settings. {@code fetchSize} is the number of rows the server-side cursor hands over per
+     * round trip, i.e. the most rows an export holds in memory. {@code compressionLevel} (1-9) applies to
+     * gzip downloads.
+     */
+    public record Export(int fetchSize, int compressionLevel, Artifacts artifacts) {
+        public Export {
+            if (fetchSize < 1) {
+                fetchSize = 5_000;
+            }
+            if (compressionLevel < 1 || compressionLevel > 9) {
+                compressionLevel = 6;
+            }
+            if (artifacts == null) {
+                artifacts = new Artifacts(false, null, null, null);
+            }
+        }
+    }
+
+    /**
+     * Precomputed CSV exports: when {@code enabled}, each feed's finished delta is written to {@code dir} once per
+     * entry of {@code compressions} and downloads are served from those files; least recently used files are
+     * deleted once the directory exceeds {@code maxSize}.
+     */
+    public record Artifacts(boolean enabled, Path dir, DataSize maxSize, Set<Compression> compressions) {
+        public Artifacts {
+            if (dir == null) {
+                dir = Path.of(System.getProperty("java.io.tmpdir"), "loans-delta-artifacts");
+            }
+            if (maxSize == null || maxSize.toBytes() <= 0) {
+                maxSize = DataSize.ofGigabytes(10);
+            }
+            compressions = compressions == null || compressions.isEmpty() ? Set.of(Compression.GZIP) : Set.copyOf(compressions);
+        }
     }
 }
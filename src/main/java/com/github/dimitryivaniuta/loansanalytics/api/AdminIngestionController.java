@@ -1,8 +1,10 @@
 package com.github.dimitryivaniuta.loansanalytics.api;
 
 import com.github.dimitryivaniuta.loansanalytics.ingest.IngestionOrchestrator;
+import com.github.dimitryivaniuta.loansanalytics.ingest.IngestionRunScheduler;
 import com.github.dimitryivaniuta.loansanalytics.ingest.feed.FeedName;
 import jakarta.validation.constraints.NotNull;
+import java.net.URI;
 import java.time.LocalDate;
 import java.util.Map;
 import java.util.UUID;
@@ -20,7 +22,14 @@ import org.springframework.web.bind.annotation.RestController;
 public class AdminIngestionController {
 
     private final IngestionOrchestrator orchestrator;
+    private final IngestionRunScheduler scheduler;
 
+    /**
+     * Queues ingestion + delta generation for {@code asOf} (see {@link IngestionRunScheduler}) and answers
+     * {@code 202 Accepted} with the run id right away; {@code Location} points at {@code GET /api/admin/runs/{runId}},
+     * which reports the status (QUEUED, STARTED, SUCCESS, FAILED) and per-feed progress. A request for the same day
+     * and feeds as a run still waiting in the queue returns that run ({@code merged=true}); a full queue answers 503.
+     */
     @PostMapping("/ingest")
     public ResponseEntity<Map<String, Object>> ingest(
             @RequestParam("asOf")
@@ -29,10 +38,12 @@ public class AdminIngestionController {
             LocalDate asOf,
             @RequestParam(value = "feeds", required = false) String feeds
     ) {
-        UUID runId = (feeds == null || feeds.isBlank())
-                ? orchestrator.ingestAndGenerateDelta(asOf)
-                : orchestrator.ingestAndGenerateDelta(asOf, parseFeeds(feeds));
-        return ResponseEntity.ok(Map.of("runId", runId.toString(), "asOf", asOf.toString()));
+        var submission = scheduler.submit(asOf,
+                (feeds == null || feeds.isBlank()) ? orchestrator.enabledFeeds() : parseFeeds(feeds));
+        UUID runId = submission.runId();
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/admin/runs/" + runId))
+                .body(Map.of("runId", runId.toString(), "asOf", asOf.toString(), "merged", submission.merged()));
     }
 
     private static java.util.Set<FeedName> parseFeeds(String csv) {
@@ -1,6 +1,6 @@
 package com.github.dimitryivaniuta.loansanalytics.api;
 
-import com.github.dimitryivaniuta.loansanalytics.ingest.JobRunRepository;
+import com.github.dimitryivaniuta.loansanalytics.ingest.JobRunCache;
 import com.github.dimitryivaniuta.loansanalytics.ingest.feed.FeedRegistry;
 import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
@@ -22,7 +22,7 @@ import org.springframework.web.bind.annotation.RestController;
 public class AdminQueryController {
 
     private final FeedRegistry feedRegistry;
-    private final JobRunRepository jobRunRepository;
+    private final JobRunCache jobRuns;
 
     @GetMapping("/feeds")
     public ResponseEntity<?> listFeeds() {
@@ -32,6 +32,7 @@ public class AdminQueryController {
                         "filePattern", fd.filePattern(),
                         "stagingTable", fd.stagingTable(),
                         "snapshotTable", fd.snapshotTable(),
+                        "versionTable", fd.versionTable(),
                         "pkColumns", fd.primaryKeyColumns(),
                         "businessColumns", fd.dataColumns()
                 )).toList()
@@ -44,17 +45,17 @@ public class AdminQueryController {
             @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
             @RequestParam(value = "limit", required = false, defaultValue = "50") @Min(1) @Max(500) int limit
     ) {
-        return ResponseEntity.ok(jobRunRepository.listRuns(from, to, limit));
+        return ResponseEntity.ok(jobRuns.listRuns(from, to, limit));
     }
 
     @GetMapping("/runs/{runId}")
     public ResponseEntity<?> getRun(@PathVariable("runId") UUID runId) {
-        Map<String,Object> run = jobRunRepository.getRun(runId);
+        Map<String,Object> run = jobRuns.getRun(runId);
         return run == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(run);
     }
 
     @GetMapping("/runs/{runId}/feeds")
     public ResponseEntity<?> getRunFeeds(@PathVariable("runId") UUID runId) {
-        return ResponseEntity.ok(jobRunRepository.listRunFeeds(runId));
+        return ResponseEntity.ok(jobRuns.listRunFeeds(runId));
     }
 }
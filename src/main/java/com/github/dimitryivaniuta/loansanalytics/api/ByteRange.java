@@ -0,0 +1,66 @@
+package com.github.dimitryivaniuta.loansanalytics.api;
+
+/**
+ * A single {@code Range: bytes=...} request against a file of known size.
+ *
+ * @param start first byte, inclusive
+ * @param end   last byte, inclusive
+ */
+record ByteRange(long start, long end) {
+
+    long length() {
+        return end - start + 1;
+    }
+
+    String contentRange(long size) {
+        return "bytes " + start + "-" + end + "/" + size;
+    }
+
+    /**
+     * Parses {@code first-last}, {@code first-} and {@code -suffixLength}. Returns null (serve the whole file)
+     * when there is no header, it is not a byte range or it asks for several ranges.
+     *
+     * @throws UnsatisfiableException when the range lies outside the file (HTTP 416)
+     */
+    static ByteRange parse(String header, long size) {
+        if (header == null || !header.startsWith("bytes=")) {
+            return null;
+        }
+        String spec = header.substring("bytes=".length()).trim();
+        if (spec.contains(",")) {
+            return null;
+        }
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            if (first.isEmpty()) {
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0 || size == 0) {
+                    throw new UnsatisfiableException();
+                }
+                return new ByteRange(Math.max(0, size - suffix), size - 1);
+            }
+            long start = Long.parseLong(first);
+            long end = last.isEmpty() ? Long.MAX_VALUE : Long.parseLong(last);
+            if (end < start) {
+                return null;
+            }
+            if (start >= size) {
+                throw new UnsatisfiableException();
+            }
+            return new ByteRange(start, Math.min(end, size - 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    static final class UnsatisfiableException extends RuntimeException {
+        UnsatisfiableException() {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -1,33 +1,71 @@
 package com.github.dimitryivaniuta.loansanalytics.api;
 
-import com.github.dimitryivaniuta.loansanalytics.ingest.DeltaRepository;
-import com.github.dimitryivaniuta.loansanalytics.ingest.JobRunRepository;
+import com.github.dimitryivaniuta.loansanalytics.export.Compression;
+import com.github.dimitryivaniuta.loansanalytics.export.DeltaArtifact;
+import com.github.dimitryivaniuta.loansanalytics.export.DeltaArtifactStore;
+import com.github.dimitryivaniuta.loansanalytics.export.DeltaExportService;
+import com.github.dimitryivaniuta.loansanalytics.export.ExportMode;
+import com.github.dimitryivaniuta.loansanalytics.ingest.JobRunCache;
+import com.github.dimitryivaniuta.loansanalytics.ingest.feed.FeedDefinition;
+import com.github.dimitryivaniuta.loansanalytics.ingest.feed.FeedName;
+import com.github.dimitryivaniuta.loansanalytics.ingest.feed.FeedRegistry;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Locale;
 import java.util.UUID;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpHeaders;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+@Slf4j
 @RestController
 @RequestMapping("/api")
 @RequiredArgsConstructor
 public class DeltaExportController {
 
-    private final JobRunRepository jobRunRepository;
-    private final DeltaRepository deltaRepository;
+    static final String ARROW_STREAM = "application/vnd.apache.arrow.stream";
+
+    private final JobRunCache jobRuns;
+    private final DeltaExportService exportService;
+    private final DeltaArtifactStore artifacts;
+    private final FeedRegistry feedRegistry;
 
     /**
      * Streams the delta feed for the latest successful run for the given day.
      *
      * Downstream contract is unified across feeds:
      * feed_name, op(I/U/D), entity_key, changed_fields, before_row, after_row.
+     *
+     * <p>{@code mode=jdbc} (default) streams cursor rows through the JVM; {@code mode=copy} pipes
+     * {@code COPY ... TO STDOUT} output straight to the response. Both produce the same CSV.</p>
+     *
+     * <p>The body is compressed on the fly (gzip or zstd) when {@code compression} asks for it or, absent the
+     * parameter, when the client's {@code Accept-Encoding} allows it; it is sent with {@code Content-Encoding}.</p>
+     *
+     * <p>{@code format=arrow} streams an Arrow IPC stream instead, with typed {@code before_*}/{@code after_*}
+     * columns per feed in place of the JSON payloads ({@code mode} does not apply).</p>
+     *
+     * <p>{@code feed} must be a {@link FeedName}; anything else is rejected with 400.</p>
+     *
+     * <p>CSV downloads for which the pipeline left an artifact ({@link DeltaArtifactStore}) in the negotiated
+     * compression are served from that file without touching the database ({@code FileChannel.transferTo}), with
+     * {@code ETag}/{@code If-None-Match} and single {@code Range} requests. The file stays pinned against eviction
+     * until the body is written; Tomcat sendfile is not used since it writes after the servlet returns, when the
+     * pin is gone.</p>
      */
     @GetMapping("/delta")
     public void downloadDelta(
@@ -35,42 +73,120 @@ public class DeltaExportController {
             @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
             LocalDate asOf,
             @RequestParam(value = "feed", required = false, defaultValue = "LOAN_MASTER") String feed,
+            @RequestParam(value = "format", required = false, defaultValue = "csv") String format,
+            @RequestParam(value = "mode", required = false, defaultValue = "jdbc") String mode,
+            @RequestParam(value = "compression", required = false) String compression,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            HttpServletRequest request,
             HttpServletResponse response
     ) throws IOException {
-        UUID runId = jobRunRepository.findLatestSuccessfulRunId(asOf);
+        FeedName feedName = parseFeed(feed);
+        FeedDefinition arrowFeed = isArrow(format) ? feedRegistry.get(feedName) : null;
+        ExportMode exportMode = ExportMode.from(mode);
+        Compression encoding = Compression.negotiate(compression, acceptEncoding);
+        UUID runId = jobRuns.findLatestSuccessfulRunId(asOf);
         if (runId == null) {
             response.sendError(404, "No successful run found for asOf=" + asOf);
             return;
         }
 
-        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
-        response.setContentType("text/csv");
-        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=delta_" + feed + "_" + asOf + ".csv");
+        if (arrowFeed != null) {
+            response.setContentType(ARROW_STREAM);
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=delta_" + feedName + "_" + asOf + ".arrows");
+        } else {
+            response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+            response.setContentType("text/csv");
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=delta_" + feedName + "_" + asOf + ".csv");
+        }
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (encoding.contentEncoding() != null) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, encoding.contentEncoding());
+        }
+
+        if (arrowFeed == null) {
+            var lease = artifacts.find(runId, feedName, encoding);
+            if (lease.isPresent()) {
+                try (var pinned = lease.get()) {
+                    serveArtifact(pinned.artifact(), request, response);
+                    log.debug("Served delta run={} feed={} compression={} from {}", runId, feedName, encoding, pinned.artifact().path());
+                }
+                return;
+            }
+        }
+
+        var stats = arrowFeed != null
+                ? exportService.writeArrow(runId, arrowFeed, asOf, encoding, response.getOutputStream())
+                : exportService.writeCsv(runId, feedName, asOf, exportMode, encoding, response.getOutputStream());
+        log.debug("Exported delta run={} feed={} format={} mode={} compression={} rows={} bytes={} in {} ms",
+                runId, feedName, format, exportMode, encoding, stats.rows(), stats.bytes(), stats.nanos() / 1_000_000);
+    }
+
+    private static void serveArtifact(DeltaArtifact artifact, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        response.setHeader(HttpHeaders.ETAG, artifact.etag());
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, artifact.lastModified().toEpochMilli());
+        if (etagMatches(request.getHeader(HttpHeaders.IF_NONE_MATCH), artifact.etag())) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        ByteRange range = null;
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null || ifRange.trim().equals(artifact.etag())) {
+            try {
+                range = ByteRange.parse(request.getHeader(HttpHeaders.RANGE), artifact.size());
+            } catch (ByteRange.UnsatisfiableException e) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + artifact.size());
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+        }
+        long start = range == null ? 0 : range.start();
+        long length = range == null ? artifact.size() : range.length();
+        if (range != null) {
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, range.contentRange(artifact.size()));
+        }
+        response.setContentLengthLong(length);
+
+        try (FileChannel file = FileChannel.open(artifact.path(), StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long end = start + length;
+            while (position < end) {
+                position += file.transferTo(position, end - position, out);
+            }
+        }
+    }
 
-        var writer = response.getWriter();
-        writer.write("feed_name,op,entity_key,changed_fields,before_row,after_row\n");
+    private static boolean etagMatches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*") || tag.equals(etag) || tag.equals("W/" + etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
 
-        for (var row : deltaRepository.findDeltaRows(runId, feed)) {
-            writer.write(csv(feed));
-            writer.write(',');
-            writer.write(csv(row.op()));
-            writer.write(',');
-            writer.write(csv(row.entityKeyJson()));
-            writer.write(',');
-            writer.write(csv(row.changedFieldsJson()));
-            writer.write(',');
-            writer.write(csv(row.beforeRowJson()));
-            writer.write(',');
-            writer.write(csv(row.afterRowJson()));
-            writer.write('\n');
+    private static FeedName parseFeed(String feed) {
+        try {
+            return FeedName.valueOf(feed.trim());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown feed: " + feed + " (expected one of "
+                    + Arrays.toString(FeedName.values()) + ")");
         }
-        writer.flush();
     }
 
-    private static String csv(String v) {
-        if (v == null) return "";
-        boolean mustQuote = v.indexOf(',') >= 0 || v.indexOf('"') >= 0 || v.indexOf('\n') >= 0 || v.indexOf('\r') >= 0;
-        if (!mustQuote) return v;
-        return '"' + v.replace("\"", "\"\"") + '"';
+    private static boolean isArrow(String format) {
+        return switch (format.trim().toLowerCase(Locale.ROOT)) {
+            case "csv" -> false;
+            case "arrow" -> true;
+            default -> throw new IllegalArgumentException("Unsupported format: " + format + " (expected csv or arrow)");
+        };
     }
 }
@@ -1,7 +1,9 @@
 package com.github.dimitryivaniuta.loansanalytics.api;
 
+import com.github.dimitryivaniuta.loansanalytics.ingest.RunQueueFullException;
 import java.time.Instant;
 import java.util.Map;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -21,6 +23,18 @@ public class GlobalExceptionHandler {
         ));
     }
 
+    @ExceptionHandler(RunQueueFullException.class)
+    public ResponseEntity<Map<String, Object>> unavailable(RunQueueFullException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "60")
+                .body(Map.of(
+                        "timestamp", Instant.now().toString(),
+                        "status", 503,
+                        "error", "Service Unavailable",
+                        "message", e.getMessage()
+                ));
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<Map<String, Object>> validation(MethodArgumentNotValidException e) {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of(
@@ -0,0 +1,23 @@
+package com.github.dimitryivaniuta.loansanalytics.config;
+
+import com.github.dimitryivaniuta.loansanalytics.LoansIngestionProperties;
+import com.github.dimitryivaniuta.loansanalytics.ingest.BaselineStrategy;
+import com.github.dimitryivaniuta.loansanalytics.ingest.BusinessDayBaseline;
+import com.github.dimitryivaniuta.loansanalytics.ingest.JobRunRepository;
+import com.github.dimitryivaniuta.loansanalytics.ingest.LastSuccessfulBaseline;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class BaselineConfig {
+
+    @Bean
+    public BaselineStrategy baselineStrategy(LoansIngestionProperties props, JobRunRepository runs) {
+        var baseline = props.baseline();
+        return switch (baseline.mode()) {
+            case PREVIOUS_DAY -> BaselineStrategy.PREVIOUS_DAY;
+            case BUSINESS_DAY -> new BusinessDayBaseline(baseline.weekendDays(), baseline.holidays());
+            case LAST_SUCCESSFUL -> new LastSuccessfulBaseline(runs, BaselineStrategy.PREVIOUS_DAY);
+        };
+    }
+}
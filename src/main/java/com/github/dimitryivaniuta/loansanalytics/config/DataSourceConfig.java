@@ -0,0 +1,93 @@
+package com.github.dimitryivaniuta.loansanalytics.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.JdbcTransactionManager;
+
+/**
+ * One database, three Hikari pools, so the traffic classes do not queue behind each other:
+ * <ul>
+ *   <li>{@code ingest} (primary): COPY, snapshot/delta SQL, advisory locks, retention and Flyway; the pool the
+ *   feed and fan-out parallelism are capped to</li>
+ *   <li>{@code export}: streaming {@code /api/delta} reads and artifact writes ({@code DeltaExportRepository})</li>
+ *   <li>{@code metadata}: job_run audit writes and admin/run lookups ({@code JobRunRepository})</li>
+ * </ul>
+ *
+ * <p>URL and credentials come from {@code spring.datasource}; pool settings from
+ * {@code loans.datasource.<pool>.*} (any Hikari property). Each pool reports {@code hikaricp.*} meters tagged
+ * with its pool name.</p>
+ */
+@Configuration
+public class DataSourceConfig {
+
+    public static final String EXPORT_DATA_SOURCE = "exportDataSource";
+    public static final String EXPORT_JDBC = "exportJdbcTemplate";
+    public static final String EXPORT_TX = "exportTransactionManager";
+    public static final String METADATA_DATA_SOURCE = "metadataDataSource";
+    public static final String METADATA_JDBC = "metadataJdbcTemplate";
+    public static final String METADATA_TX = "metadataTransactionManager";
+
+    @Bean
+    @Primary
+    @ConfigurationProperties("loans.datasource.ingest")
+    public HikariDataSource dataSource(DataSourceProperties properties) {
+        return pool(properties, "ingest");
+    }
+
+    @Bean(EXPORT_DATA_SOURCE)
+    @ConfigurationProperties("loans.datasource.export")
+    public HikariDataSource exportDataSource(DataSourceProperties properties) {
+        return pool(properties, "export");
+    }
+
+    @Bean(METADATA_DATA_SOURCE)
+    @ConfigurationProperties("loans.datasource.metadata")
+    public HikariDataSource metadataDataSource(DataSourceProperties properties) {
+        return pool(properties, "metadata");
+    }
+
+    @Bean
+    @Primary
+    public NamedParameterJdbcTemplate namedParameterJdbcTemplate(JdbcTemplate jdbcTemplate) {
+        return new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    @Bean(EXPORT_JDBC)
+    public NamedParameterJdbcTemplate exportJdbcTemplate(@Qualifier(EXPORT_DATA_SOURCE) HikariDataSource dataSource) {
+        return new NamedParameterJdbcTemplate(dataSource);
+    }
+
+    @Bean(METADATA_JDBC)
+    public NamedParameterJdbcTemplate metadataJdbcTemplate(@Qualifier(METADATA_DATA_SOURCE) HikariDataSource dataSource) {
+        return new NamedParameterJdbcTemplate(dataSource);
+    }
+
+    @Bean
+    @Primary
+    public JdbcTransactionManager transactionManager(HikariDataSource dataSource) {
+        return new JdbcTransactionManager(dataSource);
+    }
+
+    @Bean(EXPORT_TX)
+    public JdbcTransactionManager exportTransactionManager(@Qualifier(EXPORT_DATA_SOURCE) HikariDataSource dataSource) {
+        return new JdbcTransactionManager(dataSource);
+    }
+
+    @Bean(METADATA_TX)
+    public JdbcTransactionManager metadataTransactionManager(@Qualifier(METADATA_DATA_SOURCE) HikariDataSource dataSource) {
+        return new JdbcTransactionManager(dataSource);
+    }
+
+    private static HikariDataSource pool(DataSourceProperties properties, String name) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName(name);
+        return dataSource;
+    }
+}
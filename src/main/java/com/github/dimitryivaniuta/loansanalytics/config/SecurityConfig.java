@@ -51,7 +51,8 @@ public class SecurityConfig {
 
     /**
      * CORS policy for local React dev server.
-     * Exposes Content-Disposition so the frontend can read download filename.
+     * Exposes Content-Disposition so the frontend can read download filename, and Location for the run
+     * started by POST /api/admin/ingest.
      */
     @Bean
     public CorsConfigurationSource corsConfigurationSource() {
@@ -62,7 +63,7 @@ public class SecurityConfig {
         ));
         cfg.setAllowedMethods(List.of("GET", "POST", "PUT", "DELETE", "OPTIONS"));
         cfg.setAllowedHeaders(List.of("Authorization", "Content-Type", "Accept", "X-Requested-With"));
-        cfg.setExposedHeaders(List.of("Content-Disposition", "Content-Type"));
+        cfg.setExposedHeaders(List.of("Content-Disposition", "Content-Type", "Location"));
         cfg.setAllowCredentials(true);
 
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
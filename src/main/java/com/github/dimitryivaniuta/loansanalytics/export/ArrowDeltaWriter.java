@@ -0,0 +1,235 @@
+package com.github.dimitryivaniuta.loansanalytics.export;
+
+import com.github.dimitryivaniuta.loansanalytics.ingest.ColumnTypeCatalog.ColumnType;
+import com.github.dimitryivaniuta.loansanalytics.ingest.feed.FeedDefinition;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.BitVector;
+import org.apache.arrow.vector.DateDayVector;
+import org.apache.arrow.vector.DecimalVector;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.Float4Vector;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.SmallIntVector;
+import org.apache.arrow.vector.TimeStampMicroTZVector;
+import org.apache.arrow.vector.TimeStampMicroVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.ipc.ArrowStreamWriter;
+import org.apache.arrow.vector.types.DateUnit;
+import org.apache.arrow.vector.types.FloatingPointPrecision;
+import org.apache.arrow.vector.types.TimeUnit;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.FieldType;
+import org.apache.arrow.vector.types.pojo.Schema;
+
+/**
+ * Writes typed delta rows (see {@code DeltaExportRepository.streamTypedDeltaRows}) as an Arrow IPC stream,
+ * one record batch per {@code batchRows} rows, so only a single batch is ever held in memory.
+ *
+ * <p>Schema per feed: feed_name, op, the primary key columns, changed_fields, then {@code before_<col>} and
+ * {@code after_<col>} for every data column, typed from the snapshot table. Unconstrained NUMERIC becomes
+ * decimal(38, {@value #UNCONSTRAINED_NUMERIC_SCALE}); types without an Arrow counterpart are sent as utf8.</p>
+ */
+final class ArrowDeltaWriter implements AutoCloseable {
+
+    static final int UNCONSTRAINED_NUMERIC_SCALE = 10;
+
+    private final BufferAllocator allocator;
+    private final VectorSchemaRoot root;
+    private final ArrowStreamWriter writer;
+    private final List<Binder> binders = new ArrayList<>();
+    private final int batchRows;
+    private int batchRow;
+    private long rows;
+
+    ArrowDeltaWriter(FeedDefinition feed, List<ColumnType> dataColumnTypes, int batchRows, OutputStream out) throws IOException {
+        this.batchRows = batchRows;
+        this.allocator = new RootAllocator();
+        this.root = VectorSchemaRoot.create(schema(feed, dataColumnTypes), allocator);
+        for (FieldVector v : root.getFieldVectors()) {
+            binders.add(binder(v));
+        }
+        this.writer = new ArrowStreamWriter(root, null, Channels.newChannel(out));
+        writer.start();
+        root.allocateNew();
+    }
+
+    static Schema schema(FeedDefinition feed, List<ColumnType> dataColumnTypes) {
+        List<Field> fields = new ArrayList<>();
+        fields.add(field("feed_name", ArrowType.Utf8.INSTANCE, false));
+        fields.add(field("op", ArrowType.Utf8.INSTANCE, false));
+        for (String pk : feed.primaryKeyColumns()) {
+            ColumnType t = dataColumnTypes.get(feed.dataColumns().indexOf(pk));
+            fields.add(field(pk, arrowType(t), false));
+        }
+        fields.add(field("changed_fields", ArrowType.Utf8.INSTANCE, true));
+        for (ColumnType t : dataColumnTypes) {
+            fields.add(field("before_" + t.name(), arrowType(t), true));
+        }
+        for (ColumnType t : dataColumnTypes) {
+            fields.add(field("after_" + t.name(), arrowType(t), true));
+        }
+        return new Schema(fields);
+    }
+
+    static ArrowType arrowType(ColumnType t) {
+        return switch (t.dataType()) {
+            case "smallint" -> new ArrowType.Int(16, true);
+            case "integer" -> new ArrowType.Int(32, true);
+            case "bigint" -> new ArrowType.Int(64, true);
+            case "boolean" -> ArrowType.Bool.INSTANCE;
+            case "real" -> new ArrowType.FloatingPoint(FloatingPointPrecision.SINGLE);
+            case "double precision" -> new ArrowType.FloatingPoint(FloatingPointPrecision.DOUBLE);
+            case "numeric" -> t.precision() == null
+                    ? new ArrowType.Decimal(38, UNCONSTRAINED_NUMERIC_SCALE, 128)
+                    : t.precision() <= 38 ? new ArrowType.Decimal(t.precision(), t.scale(), 128) : ArrowType.Utf8.INSTANCE;
+            case "date" -> new ArrowType.Date(DateUnit.DAY);
+            case "timestamp with time zone" -> new ArrowType.Timestamp(TimeUnit.MICROSECOND, "UTC");
+            case "timestamp without time zone" -> new ArrowType.Timestamp(TimeUnit.MICROSECOND, null);
+            default -> ArrowType.Utf8.INSTANCE;
+        };
+    }
+
+    private static Field field(String name, ArrowType type, boolean nullable) {
+        return new Field(name, new FieldType(nullable, type, null), null);
+    }
+
+    /**
+     * Appends the current row of {@code rs}; columns are read by position in schema order.
+     */
+    void write(ResultSet rs) throws SQLException, IOException {
+        for (int i = 0; i < binders.size(); i++) {
+            binders.get(i).bind(rs, i + 1, batchRow);
+        }
+        rows++;
+        if (++batchRow == batchRows) {
+            flushBatch();
+        }
+    }
+
+    /**
+     * Writes the last (partial) batch and the end-of-stream marker. The output stream is left open.
+     */
+    void finish() throws IOException {
+        flushBatch();
+        writer.end();
+    }
+
+    long rows() {
+        return rows;
+    }
+
+    private void flushBatch() throws IOException {
+        if (batchRow == 0) {
+            return;
+        }
+        root.setRowCount(batchRow);
+        writer.writeBatch();
+        root.allocateNew();
+        batchRow = 0;
+    }
+
+    @Override
+    public void close() {
+        root.close();
+        allocator.close();
+    }
+
+    @FunctionalInterface
+    private interface Binder {
+        void bind(ResultSet rs, int col, int row) throws SQLException;
+    }
+
+    private static Binder binder(FieldVector vector) {
+        if (vector instanceof VarCharVector v) {
+            return (rs, c, r) -> {
+                String s = rs.getString(c);
+                if (s == null) v.setNull(r); else v.setSafe(r, s.getBytes(StandardCharsets.UTF_8));
+            };
+        }
+        if (vector instanceof SmallIntVector v) {
+            return (rs, c, r) -> {
+                short x = rs.getShort(c);
+                if (rs.wasNull()) v.setNull(r); else v.setSafe(r, x);
+            };
+        }
+        if (vector instanceof IntVector v) {
+            return (rs, c, r) -> {
+                int x = rs.getInt(c);
+                if (rs.wasNull()) v.setNull(r); else v.setSafe(r, x);
+            };
+        }
+        if (vector instanceof BigIntVector v) {
+            return (rs, c, r) -> {
+                long x = rs.getLong(c);
+                if (rs.wasNull()) v.setNull(r); else v.setSafe(r, x);
+            };
+        }
+        if (vector instanceof BitVector v) {
+            return (rs, c, r) -> {
+                boolean x = rs.getBoolean(c);
+                if (rs.wasNull()) v.setNull(r); else v.setSafe(r, x ? 1 : 0);
+            };
+        }
+        if (vector instanceof Float4Vector v) {
+            return (rs, c, r) -> {
+                float x = rs.getFloat(c);
+                if (rs.wasNull()) v.setNull(r); else v.setSafe(r, x);
+            };
+        }
+        if (vector instanceof Float8Vector v) {
+            return (rs, c, r) -> {
+                double x = rs.getDouble(c);
+                if (rs.wasNull()) v.setNull(r); else v.setSafe(r, x);
+            };
+        }
+        if (vector instanceof DecimalVector v) {
+            return (rs, c, r) -> {
+                BigDecimal x = rs.getBigDecimal(c);
+                if (x == null) v.setNull(r); else v.setSafe(r, x.setScale(v.getScale(), RoundingMode.HALF_UP));
+            };
+        }
+        if (vector instanceof DateDayVector v) {
+            return (rs, c, r) -> {
+                LocalDate x = rs.getObject(c, LocalDate.class);
+                if (x == null) v.setNull(r); else v.setSafe(r, (int) x.toEpochDay());
+            };
+        }
+        if (vector instanceof TimeStampMicroTZVector v) {
+            return (rs, c, r) -> {
+                OffsetDateTime x = rs.getObject(c, OffsetDateTime.class);
+                if (x == null) v.setNull(r); else v.setSafe(r, micros(x.toInstant()));
+            };
+        }
+        if (vector instanceof TimeStampMicroVector v) {
+            return (rs, c, r) -> {
+                LocalDateTime x = rs.getObject(c, LocalDateTime.class);
+                if (x == null) v.setNull(r); else v.setSafe(r, micros(x.toInstant(ZoneOffset.UTC)));
+            };
+        }
+        throw new IllegalStateException("No binder for " + vector.getField());
+    }
+
+    private static long micros(Instant t) {
+        return Math.addExact(Math.multiplyExact(t.getEpochSecond(), 1_000_000L), t.getNano() / 1_000);
+    }
+}
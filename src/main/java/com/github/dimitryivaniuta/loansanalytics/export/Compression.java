@@ -0,0 +1,103 @@
+package com.github.dimitryivaniuta.loansanalytics.export;
+
+import io.airlift.compress.zstd.ZstdOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streaming content encodings for the delta export.
+ */
+public enum Compression {
+    NONE(null),
+    GZIP("gzip"),
+    /** pure-Java codec (aircompressor); runs at the codec's default level */
+    ZSTD("zstd");
+
+    private static final int BUFFER = 64 * 1024;
+
+    private final String contentEncoding;
+
+    Compression(String contentEncoding) {
+        this.contentEncoding = contentEncoding;
+    }
+
+    /** {@code Content-Encoding} header value, {@code null} for {@link #NONE} */
+    public String contentEncoding() {
+        return contentEncoding;
+    }
+
+    /**
+     * Wraps {@code out} in a compressing stream. Closing the returned stream finishes the encoding and
+     * closes {@code out}.
+     */
+    public OutputStream wrap(OutputStream out, int level) throws IOException {
+        return switch (this) {
+            case NONE -> out;
+            case GZIP -> new GZIPOutputStream(out, BUFFER) {
+                {
+                    def.setLevel(level);
+                }
+            };
+            case ZSTD -> new ZstdOutputStream(out);
+        };
+    }
+
+    /**
+     * Picks the encoding: an explicit {@code compression} parameter (none/identity, gzip, zstd) wins,
+     * otherwise the supported coding with the highest q-value in {@code Accept-Encoding}: {@code q=0} excludes a
+     * coding, {@code *} stands for gzip when gzip is not listed, and on equal weights zstd is preferred.
+     */
+    public static Compression negotiate(String parameter, String acceptEncoding) {
+        if (parameter != null && !parameter.isBlank()) {
+            return switch (parameter.trim().toLowerCase(Locale.ROOT)) {
+                case "none", "identity" -> NONE;
+                case "gzip" -> GZIP;
+                case "zstd" -> ZSTD;
+                default -> throw new IllegalArgumentException(
+                        "Unsupported compression: " + parameter + " (expected none, gzip or zstd)");
+            };
+        }
+        if (acceptEncoding == null || acceptEncoding.isBlank()) {
+            return NONE;
+        }
+        double gzip = -1;
+        double zstd = 0;
+        double any = -1;
+        for (String part : acceptEncoding.split(",")) {
+            String[] codingAndParams = part.trim().split(";");
+            double q = weight(codingAndParams);
+            switch (codingAndParams[0].trim().toLowerCase(Locale.ROOT)) {
+                case "zstd" -> zstd = Math.max(zstd, q);
+                case "gzip", "x-gzip" -> gzip = Math.max(gzip, q);
+                case "*" -> any = Math.max(any, q);
+                default -> {
+                }
+            }
+        }
+        if (gzip < 0) {
+            gzip = any;
+        }
+        if (zstd > 0 && zstd >= gzip) {
+            return ZSTD;
+        }
+        return gzip > 0 ? GZIP : NONE;
+    }
+
+    /** the coding's q-value: 1 when absent, 0 when malformed */
+    private static double weight(String[] codingAndParams) {
+        for (int i = 1; i < codingAndParams.length; i++) {
+            String p = codingAndParams[i].trim().toLowerCase(Locale.ROOT);
+            if (p.startsWith("q=")) {
+                try {
+                    double q = Double.parseDouble(p.substring(2).trim());
+                    return q >= 0 && q <= 1 ? q : 0;
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+}
@@ -0,0 +1,12 @@
+package com.github.dimitryivaniuta.loansanalytics.export;
+
+import java.nio.file.Path;
+import java.time.Instant;
+
+/**
+ * A finished delta export on disk, see {@link DeltaArtifactStore}.
+ *
+ * @param etag strong entity tag: changes whenever the file is rewritten
+ */
+public record DeltaArtifact(Path path, long size, Instant lastModified, String etag) {
+}
@@ -0,0 +1,291 @@
+package com.github.dimitryivaniuta.loansanalytics.export;
+
+import com.github.dimitryivaniuta.loansanalytics.LoansIngestionProperties;
+import com.github.dimitryivaniuta.loansanalytics.ingest.feed.FeedName;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Finished CSV delta exports kept on local disk ({@code loans.ingestion.export.artifacts}).
+ *
+ * <p>The pipeline writes one file per (run, feed) and configured compression as the last step of each feed
+ * ({@code COPY ... TO STDOUT} into a temp file, then an atomic rename), so {@code /api/delta} can serve repeated
+ * downloads of the latest run straight from the file instead of re-running the delta query. The directory is
+ * bounded by {@code max-size}: after each write the least recently downloaded (or written) files are deleted
+ * until the total fits. A missing artifact is not an error, the download then streams from the database.</p>
+ *
+ * <p>{@link #find} pins the file until its {@link Lease} is closed: eviction skips pinned files (the directory may
+ * stay over budget meanwhile) and deletes them once released, so a download never loses its file halfway.</p>
+ *
+ * <p>Meters: {@code delta.artifact.requests} (tag {@code result=hit|miss}), {@code delta.artifact.evictions},
+ * {@code delta.artifact.bytes} (gauge).</p>
+ */
+@Slf4j
+@Component
+public class DeltaArtifactStore {
+
+    private static final String TMP_SUFFIX = ".tmp";
+
+    private final DeltaExportService exportService;
+    private final LoansIngestionProperties.Artifacts config;
+    private final ReentrantLock lock = new ReentrantLock();
+    // file name -> size in bytes, in access order: the first entry is the least recently used
+    private final LinkedHashMap<String, Long> index = new LinkedHashMap<>(64, 0.75f, true);
+    // file name -> open leases
+    private final Map<String, Integer> pins = new HashMap<>();
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+    private long totalBytes;
+
+    @Autowired
+    public DeltaArtifactStore(DeltaExportService exportService, LoansIngestionProperties props, MeterRegistry registry) {
+        this(exportService, props.export().artifacts(), registry);
+    }
+
+    DeltaArtifactStore(DeltaExportService exportService, LoansIngestionProperties.Artifacts config,
+                       MeterRegistry registry) {
+        this.exportService = exportService;
+        this.config = config;
+        this.hits = Counter.builder("delta.artifact.requests").tag("result", "hit").register(registry);
+        this.misses = Counter.builder("delta.artifact.requests").tag("result", "miss").register(registry);
+        this.evictions = Counter.builder("delta.artifact.evictions").register(registry);
+        Gauge.builder("delta.artifact.bytes", this, DeltaArtifactStore::totalBytes).baseUnit("bytes").register(registry);
+    }
+
+    /**
+     * Rebuilds the index from the directory (oldest file first), removing temp files of interrupted writes.
+     */
+    @PostConstruct
+    void load() throws IOException {
+        if (!config.enabled()) {
+            return;
+        }
+        Files.createDirectories(config.dir());
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(config.dir())) {
+            files = listing.filter(Files::isRegularFile).toList();
+        }
+        record Found(Path path, BasicFileAttributes attrs) {
+        }
+        List<Found> artifacts = files.stream()
+                .map(p -> new Found(p, readAttributes(p)))
+                .sorted(Comparator.comparing(f -> f.attrs().lastModifiedTime()))
+                .toList();
+        lock.lock();
+        try {
+            for (Found f : artifacts) {
+                String name = f.path().getFileName().toString();
+                if (name.endsWith(TMP_SUFFIX)) {
+                    Files.deleteIfExists(f.path());
+                } else {
+                    index.put(name, f.attrs().size());
+                    totalBytes += f.attrs().size();
+                }
+            }
+            evictOverBudget();
+        } finally {
+            lock.unlock();
+        }
+        log.info("Delta artifacts in {}: {} files, {} bytes (budget {})", config.dir(), index.size(), totalBytes,
+                config.maxSize());
+    }
+
+    public boolean enabled() {
+        return config.enabled();
+    }
+
+    /**
+     * Writes the run's CSV delta of {@code feed} once per configured compression, replacing earlier files.
+     */
+    public void write(UUID runId, FeedName feed, LocalDate asOf) throws IOException {
+        for (Compression compression : config.compressions()) {
+            String name = fileName(runId, feed, compression);
+            Path target = config.dir().resolve(name);
+            Path tmp = config.dir().resolve(name + "." + UUID.randomUUID() + TMP_SUFFIX);
+            try {
+                try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tmp), 64 * 1024)) {
+                    exportService.writeCsvArtifact(runId, feed, asOf, compression, out);
+                }
+                Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+            added(name, Files.size(target));
+        }
+    }
+
+    /**
+     * The artifact for a download, if the pipeline wrote one and it has not been evicted; marks it used and pins
+     * it until the returned lease is closed. Read the file while the lease is open.
+     */
+    public Optional<Lease> find(UUID runId, FeedName feed, Compression compression) {
+        if (!config.enabled()) {
+            return Optional.empty();
+        }
+        String name = fileName(runId, feed, compression);
+        lock.lock();
+        try {
+            if (index.get(name) == null) {
+                misses.increment();
+                return Optional.empty();
+            }
+            pins.merge(name, 1, Integer::sum);
+        } finally {
+            lock.unlock();
+        }
+
+        Path path = config.dir().resolve(name);
+        BasicFileAttributes attrs;
+        try {
+            attrs = Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (IOException e) {
+            // deleted behind our back
+            release(name);
+            removed(name);
+            misses.increment();
+            return Optional.empty();
+        }
+        hits.increment();
+        long modified = attrs.lastModifiedTime().toMillis();
+        String etag = "\"" + runId + "-" + feed + "-" + compression.name().toLowerCase(Locale.ROOT)
+                + "-" + Long.toHexString(attrs.size()) + "-" + Long.toHexString(modified) + "\"";
+        return Optional.of(new Lease(name,
+                new DeltaArtifact(path, attrs.size(), attrs.lastModifiedTime().toInstant(), etag)));
+    }
+
+    long totalBytes() {
+        lock.lock();
+        try {
+            return totalBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void added(String name, long size) {
+        lock.lock();
+        try {
+            Long previous = index.put(name, size);
+            totalBytes += size - (previous == null ? 0 : previous);
+            evictOverBudget();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release(String name) {
+        lock.lock();
+        try {
+            pins.computeIfPresent(name, (n, count) -> count > 1 ? count - 1 : null);
+            evictOverBudget();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void removed(String name) {
+        lock.lock();
+        try {
+            Long size = index.remove(name);
+            if (size != null) {
+                totalBytes -= size;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Deletes least recently used files until the directory fits the budget, skipping pinned ones. Caller holds
+     * the lock.
+     */
+    private void evictOverBudget() {
+        Iterator<Map.Entry<String, Long>> it = index.entrySet().iterator();
+        while (totalBytes > config.maxSize().toBytes() && it.hasNext()) {
+            Map.Entry<String, Long> eldest = it.next();
+            if (pins.containsKey(eldest.getKey())) {
+                continue;
+            }
+            try {
+                Files.deleteIfExists(config.dir().resolve(eldest.getKey()));
+            } catch (IOException e) {
+                log.warn("Could not delete delta artifact {}: {}", eldest.getKey(), e.getMessage());
+                continue;
+            }
+            totalBytes -= eldest.getValue();
+            it.remove();
+            evictions.increment();
+            log.debug("Evicted delta artifact {} ({} bytes)", eldest.getKey(), eldest.getValue());
+        }
+    }
+
+    static String fileName(UUID runId, FeedName feed, Compression compression) {
+        String extension = switch (compression) {
+            case NONE -> "";
+            case GZIP -> ".gz";
+            case ZSTD -> ".zst";
+        };
+        return "delta_" + runId + "_" + feed.name() + ".csv" + extension;
+    }
+
+    private static BasicFileAttributes readAttributes(Path path) {
+        try {
+            return Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * A pinned artifact: the file is not evicted before {@link #close()}.
+     */
+    public final class Lease implements AutoCloseable {
+
+        private final String name;
+        private final DeltaArtifact artifact;
+        private boolean closed;
+
+        private Lease(String name, DeltaArtifact artifact) {
+            this.name = name;
+            this.artifact = artifact;
+        }
+
+        public DeltaArtifact artifact() {
+            return artifact;
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                release(name);
+            }
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.github.dimitryivaniuta.loansanalytics.export;
+
+import com.github.dimitryivaniuta.loansanalytics.ingest.DeltaRepository.DeltaEventRow;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Unified delta CSV contract: feed_name, op(I/U/D), entity_key, changed_fields, before_row, after_row.
+ */
+public final class DeltaCsvWriter {
+
+    public static final String HEADER = "feed_name,op,entity_key,changed_fields,before_row,after_row\n";
+
+    private DeltaCsvWriter() {
+    }
+
+    public static void writeRow(Writer writer, String feed, DeltaEventRow row) throws IOException {
+        writer.write(csv(feed));
+        writer.write(',');
+        writer.write(csv(row.op()));
+        writer.write(',');
+        writer.write(csv(row.entityKeyJson()));
+        writer.write(',');
+        writer.write(csv(row.changedFieldsJson()));
+        writer.write(',');
+        writer.write(csv(row.beforeRowJson()));
+        writer.write(',');
+        writer.write(csv(row.afterRowJson()));
+        writer.write('\n');
+    }
+
+    public static String csv(String v) {
+        if (v == null) return "";
+        boolean mustQuote = v.indexOf(',') >= 0 || v.indexOf('"') >= 0 || v.indexOf('\n') >= 0 || v.indexOf('\r') >= 0;
+        if (!mustQuote) return v;
+        return '"' + v.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,147 @@
+package com.github.dimitryivaniuta.loansanalytics.export;
+
+import com.github.dimitryivaniuta.loansanalytics.LoansIngestionProperties;
+import com.github.dimitryivaniuta.loansanalytics.config.DataSourceConfig;
+import com.github.dimitryivaniuta.loansanalytics.ingest.ColumnTypeCatalog;
+import com.github.dimitryivaniuta.loansanalytics.ingest.ColumnTypeCatalog.ColumnType;
+import com.github.dimitryivaniuta.loansanalytics.ingest.DeltaExportRepository;
+import com.github.dimitryivaniuta.loansanalytics.ingest.feed.FeedDefinition;
+import com.github.dimitryivaniuta.loansanalytics.ingest.feed.FeedName;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Streams a run/feed delta to an output stream.
+ *
+ * <p>Rows come from a server-side cursor inside a read-only transaction and are written as they arrive,
+ * so memory stays bounded by the fetch size and the first bytes leave before the query has finished. Reads use the
+ * {@code export} connection pool.</p>
+ */
+@Service
+public class DeltaExportService {
+
+    private static final int WRITE_BUFFER = 64 * 1024;
+
+    private final DeltaExportRepository deltaRepository;
+    private final ColumnTypeCatalog columnTypes;
+    private final ExportMetrics metrics;
+    private final LoansIngestionProperties props;
+    private final TransactionTemplate readOnlyTx;
+
+    public DeltaExportService(DeltaExportRepository deltaRepository, ColumnTypeCatalog columnTypes, ExportMetrics metrics,
+                              LoansIngestionProperties props,
+                              @Qualifier(DataSourceConfig.EXPORT_TX) PlatformTransactionManager transactionManager) {
+        this.deltaRepository = deltaRepository;
+        this.columnTypes = columnTypes;
+        this.metrics = metrics;
+        this.props = props;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+    }
+
+    public ExportStats writeCsv(UUID runId, FeedName feed, LocalDate asOf, ExportMode mode, OutputStream out) throws IOException {
+        return writeCsv(runId, feed, asOf, mode, Compression.NONE, out);
+    }
+
+    /**
+     * Writes the CSV, optionally compressed on the fly. {@code out} is flushed but not closed; the byte
+     * count in the returned stats is what went to {@code out}, i.e. after compression.
+     */
+    public ExportStats writeCsv(UUID runId, FeedName feed, LocalDate asOf, ExportMode mode, Compression compression,
+                                OutputStream out) throws IOException {
+        return export(feed, mode == ExportMode.COPY ? "csv-copy" : "csv", compression, out, body -> mode == ExportMode.COPY
+                ? deltaRepository.copyDeltaCsv(runId, feed.name(), asOf, body)
+                : writeRows(runId, feed.name(), asOf, body));
+    }
+
+    /**
+     * Writes the CSV for {@link DeltaArtifactStore}: same bytes as a {@code mode=copy} download, recorded under
+     * format {@code csv-artifact} so artifact writes do not count as downloads.
+     */
+    public ExportStats writeCsvArtifact(UUID runId, FeedName feed, LocalDate asOf, Compression compression,
+                                        OutputStream out) throws IOException {
+        return export(feed, "csv-artifact", compression, out,
+                body -> deltaRepository.copyDeltaCsv(runId, feed.name(), asOf, body));
+    }
+
+    /**
+     * Writes the delta as an Arrow IPC stream with typed before_/after_ columns (see {@link ArrowDeltaWriter}),
+     * one record batch per cursor fetch.
+     */
+    public ExportStats writeArrow(UUID runId, FeedDefinition feed, LocalDate asOf, Compression compression,
+                                  OutputStream out) throws IOException {
+        List<ColumnType> types = columnTypes.dataColumnTypes(feed);
+        int fetchSize = props.export().fetchSize();
+        return export(feed.name(), "arrow", compression, out, body -> {
+            try (var arrow = new ArrowDeltaWriter(feed, types, fetchSize, body)) {
+                readOnlyTx.executeWithoutResult(status -> deltaRepository.streamTypedDeltaRows(
+                        runId, feed, asOf, fetchSize, rs -> {
+                            try {
+                                arrow.write(rs);
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                        }));
+                arrow.finish();
+                return arrow.rows();
+            }
+        });
+    }
+
+    private ExportStats export(FeedName feed, String format, Compression compression, OutputStream out,
+                               BodyWriter bodyWriter) throws IOException {
+        long start = System.nanoTime();
+        var counting = new CountingOutputStream(out);
+        OutputStream body = compression.wrap(counting, props.export().compressionLevel());
+
+        long rows;
+        try {
+            rows = bodyWriter.write(body);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        // completes the compressed stream (trailer); CountingOutputStream keeps the caller's stream open
+        body.close();
+
+        var stats = new ExportStats(rows, counting.count(), System.nanoTime() - start);
+        metrics.record(feed, format, compression.name().toLowerCase(Locale.ROOT), stats);
+        return stats;
+    }
+
+    @FunctionalInterface
+    private interface BodyWriter {
+        long write(OutputStream body) throws IOException;
+    }
+
+    /**
+     * Row-based export: cursor rows mapped to {@link DeltaCsvWriter} lines.
+     */
+    private long writeRows(UUID runId, String feed, LocalDate asOf, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), WRITE_BUFFER);
+        writer.write(DeltaCsvWriter.HEADER);
+
+        Long rows = readOnlyTx.execute(status -> deltaRepository.streamDeltaRows(
+                runId, feed, asOf, props.export().fetchSize(), row -> {
+                    try {
+                        DeltaCsvWriter.writeRow(writer, feed, row);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }));
+        writer.flush();
+        return rows == null ? 0 : rows;
+    }
+}
@@ -0,0 +1,48 @@
+package com.github.dimitryivaniuta.loansanalytics.export;
+
+import com.github.dimitryivaniuta.loansanalytics.ingest.feed.FeedName;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.concurrent.TimeUnit;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Per-export meters, tagged by feed ({@link FeedName}, so the tag values are bounded), format and compression:
+ * <ul>
+ *   <li>{@code delta.export.duration} — timer</li>
+ *   <li>{@code delta.export.rows} — counter of rows streamed</li>
+ *   <li>{@code delta.export.bytes} — summary of bytes written per export (after compression)</li>
+ *   <li>{@code delta.export.throughput} — summary of rows/sec per export</li>
+ * </ul>
+ */
+@Component
+@RequiredArgsConstructor
+public class ExportMetrics {
+
+    private final MeterRegistry registry;
+
+    public void record(FeedName feed, String format, String compression, ExportStats stats) {
+        String feedTag = feed.name();
+        Timer.builder("delta.export.duration")
+                .tags("feed", feedTag, "format", format, "compression", compression)
+                .register(registry)
+                .record(stats.nanos(), TimeUnit.NANOSECONDS);
+        Counter.builder("delta.export.rows")
+                .tags("feed", feedTag, "format", format, "compression", compression)
+                .register(registry)
+                .increment(stats.rows());
+        DistributionSummary.builder("delta.export.bytes")
+                .baseUnit("bytes")
+                .tags("feed", feedTag, "format", format, "compression", compression)
+                .register(registry)
+                .record(stats.bytes());
+        DistributionSummary.builder("delta.export.throughput")
+                .baseUnit("rows.per.second")
+                .tags("feed", feedTag, "format", format, "compression", compression)
+                .register(registry)
+                .record(stats.rowsPerSecond());
+    }
+}
@@ -0,0 +1,21 @@
+package com.github.dimitryivaniuta.loansanalytics.export;
+
+import java.util.Locale;
+
+/**
+ * How the CSV export is produced.
+ */
+public enum ExportMode {
+    /** server-side cursor, rows mapped and escaped in the JVM */
+    JDBC,
+    /** {@code COPY ... TO STDOUT WITH (FORMAT csv)} piped to the response */
+    COPY;
+
+    public static ExportMode from(String value) {
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unsupported export mode: " + value + " (expected jdbc or copy)");
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.github.dimitryivaniuta.loansanalytics.export;
+
+/**
+ * Outcome of one export: rows streamed, bytes written to the response and wall time.
+ */
+public record ExportStats(long rows, long bytes, long nanos) {
+
+    public double rowsPerSecond() {
+        return nanos <= 0 ? 0 : rows * 1_000_000_000d / nanos;
+    }
+}
@@ -0,0 +1,26 @@
+package com.github.dimitryivaniuta.loansanalytics.ingest;
+
+import com.github.dimitryivaniuta.loansanalytics.ingest.feed.FeedName;
+import java.time.LocalDate;
+
+/**
+ * Picks the day a feed's snapshot of {@code asOf} is compared with to produce its delta (the "previous" side).
+ *
+ * <p>Selected by {@code loans.ingestion.baseline.mode}, see {@code BaselineConfig}; an application can supply its
+ * own implementation as a {@code @Primary} bean. The date used is recorded per feed in
+ * {@code job_run_feed.baseline_date}.</p>
+ */
+@FunctionalInterface
+public interface BaselineStrategy {
+
+    /**
+     * The calendar day before {@code asOf}; the original behaviour, produces full I/D deltas across days without
+     * a file (weekends, holidays).
+     */
+    BaselineStrategy PREVIOUS_DAY = (feed, asOf) -> asOf.minusDays(1);
+
+    /**
+     * @return the baseline day, before {@code asOf}; its snapshot may be empty (first load of a feed)
+     */
+    LocalDate baselineFor(FeedName feed, LocalDate asOf);
+}
@@ -0,0 +1,38 @@
+package com.github.dimitryivaniuta.loansanalytics.ingest;
+
+import com.github.dimitryivaniuta.loansanalytics.LoansIngestionProperties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Semaphore;
+import javax.sql.DataSource;
+import org.springframework.stereotype.Component;
+
+/**
+ * Process-wide limit for connections used by fan-out work inside a feed (COPY chunks, delta buckets).
+ *
+ * <p>Waiting happens here instead of inside Hikari, where a long COPY would make queued callers hit the pool's
+ * connection timeout. One pooled connection per parallel feed (of every concurrent run) is left outside this
+ * limit for the feed's own upsert/delta transaction, two when delta buckets are configured (the second holds the
+ * feed's session lock across the buckets).</p>
+ */
+@Component
+public class BulkConnectionSlots {
+
+    private final Semaphore slots;
+
+    public BulkConnectionSlots(DataSource dataSource, LoansIngestionProperties props) {
+        int fanOut = Math.max(props.copy().parallelism(), props.delta().maxBuckets());
+        int feeds = props.feedParallelism() * props.runs().maxConcurrent();
+        int wanted = fanOut * feeds;
+        int available = ParallelTasks.capToPool(dataSource, Integer.MAX_VALUE, 1) - feeds * props.delta().connectionsPerFeed();
+        this.slots = new Semaphore(Math.max(1, Math.min(wanted, available)), true);
+    }
+
+    public <T> T call(Callable<T> work) throws Exception {
+        slots.acquire();
+        try {
+            return work.call();
+        } finally {
+            slots.release();
+        }
+    }
+}
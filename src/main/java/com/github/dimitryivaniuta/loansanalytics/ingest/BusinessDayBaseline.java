@@ -0,0 +1,38 @@
+package com.github.dimitryivaniuta.loansanalytics.ingest;
+
+import com.github.dimitryivaniuta.loansanalytics.ingest.feed.FeedName;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Baseline = the last business day before {@code asOf}, skipping the configured weekend days and holidays
+ * ({@code loans.ingestion.baseline.mode=BUSINESS_DAY}). Suits feeds that are published on business days only.
+ */
+public class BusinessDayBaseline implements BaselineStrategy {
+
+    private final Set<DayOfWeek> weekendDays;
+    private final Set<LocalDate> holidays;
+
+    public BusinessDayBaseline(Set<DayOfWeek> weekendDays, Set<LocalDate> holidays) {
+        if (weekendDays.size() >= DayOfWeek.values().length) {
+            throw new IllegalArgumentException("Business calendar needs at least one working day of the week");
+        }
+        this.weekendDays = weekendDays.isEmpty() ? EnumSet.noneOf(DayOfWeek.class) : EnumSet.copyOf(weekendDays);
+        this.holidays = Set.copyOf(holidays);
+    }
+
+    @Override
+    public LocalDate baselineFor(FeedName feed, LocalDate asOf) {
+        LocalDate day = asOf.minusDays(1);
+        while (!isBusinessDay(day)) {
+            day = day.minusDays(1);
+        }
+        return day;
+    }
+
+    boolean isBusinessDay(LocalDate day) {
+        return !weekendDays.contains(day.getDayOfWeek()) && !holidays.contains(day);
+    }
+}
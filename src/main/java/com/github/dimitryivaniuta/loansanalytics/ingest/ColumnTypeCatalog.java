@@ -0,0 +1,67 @@
+package com.github.dimitryivaniuta.loansanalytics.ingest;
+
+import com.github.dimitryivaniuta.loansanalytics.ingest.feed.FeedDefinition;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Postgres column types of the snapshot tables, read once per table from information_schema.
+ *
+ * <p>{@link FeedDefinition} only knows column names; consumers that need typed values (columnar export,
+ * typed diffs) resolve them here. Schema changes go through Flyway, i.e. a restart, so the cache never expires.</p>
+ */
+@Repository
+@RequiredArgsConstructor
+public class ColumnTypeCatalog {
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final Map<String, Map<String, ColumnType>> byTable = new ConcurrentHashMap<>();
+
+    /**
+     * Types of {@code feed.dataColumns()}, in that order.
+     */
+    public List<ColumnType> dataColumnTypes(FeedDefinition feed) {
+        Map<String, ColumnType> columns = byTable.computeIfAbsent(feed.snapshotTable(), this::load);
+        List<ColumnType> types = new ArrayList<>(feed.dataColumns().size());
+        for (String col : feed.dataColumns()) {
+            ColumnType t = columns.get(col);
+            if (t == null) {
+                throw new IllegalStateException("Column " + col + " not found in " + feed.snapshotTable());
+            }
+            types.add(t);
+        }
+        return types;
+    }
+
+    private Map<String, ColumnType> load(String table) {
+        Map<String, ColumnType> columns = new HashMap<>();
+        jdbc.query(
+                """
+                SELECT column_name, data_type, numeric_precision, numeric_scale
+                FROM information_schema.columns
+                WHERE table_schema = current_schema() AND table_name = :table
+                """,
+                Map.of("table", table),
+                rs -> {
+                    String name = rs.getString("column_name");
+                    Integer precision = (Integer) rs.getObject("numeric_precision");
+                    Integer scale = (Integer) rs.getObject("numeric_scale");
+                    columns.put(name, new ColumnType(name, rs.getString("data_type"), precision, scale));
+                });
+        return columns;
+    }
+
+    /**
+     * @param dataType information_schema {@code data_type}, e.g. {@code text}, {@code numeric},
+     *                 {@code timestamp with time zone}
+     * @param precision numeric precision, {@code null} for unconstrained NUMERIC and non-numeric types
+     * @param scale numeric scale, {@code null} for unconstrained NUMERIC and non-numeric types
+     */
+    public record ColumnType(String name, String dataType, Integer precision, Integer scale) {}
+}
@@ -0,0 +1,104 @@
+package com.github.dimitryivaniuta.loansanalytics.ingest;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Finds CSV record boundaries (byte offsets) without decoding the file.
+ *
+ * <p>A record ends at a LF that is not inside a quoted field. Quote state is tracked by toggling on every
+ * {@code "} byte, which also covers RFC 4180 escaped quotes ({@code ""} toggles twice). This is safe for UTF-8
+ * input because neither {@code "} nor LF can occur inside a multi-byte sequence.</p>
+ */
+final class CsvRecordBoundaries {
+
+    private static final int SCAN_BUFFER = 1 << 20;
+
+    private CsvRecordBoundaries() {
+    }
+
+    record Range(long start, long end) {
+        long length() {
+            return end - start;
+        }
+    }
+
+    /**
+     * Offset of the first byte after the header record (or the file size if the file has a single record).
+     */
+    static long headerEnd(FileChannel ch) throws IOException {
+        long size = ch.size();
+        ByteBuffer buf = ByteBuffer.allocate(64 * 1024);
+        boolean inQuotes = false;
+        long pos = 0;
+        while (pos < size) {
+            buf.clear();
+            int n = ch.read(buf, pos);
+            if (n <= 0) {
+                break;
+            }
+            byte[] a = buf.array();
+            for (int i = 0; i < n; i++) {
+                byte b = a[i];
+                if (b == '"') {
+                    inQuotes = !inQuotes;
+                } else if (b == '\n' && !inQuotes) {
+                    return pos + i + 1;
+                }
+            }
+            pos += n;
+        }
+        return size;
+    }
+
+    /**
+     * Splits {@code [dataStart, size)} into ranges of at least {@code targetChunkBytes} that each start and end
+     * on a record boundary. The last range takes whatever is left.
+     */
+    static List<Range> split(FileChannel ch, long dataStart, long targetChunkBytes) throws IOException {
+        long size = ch.size();
+        List<Range> out = new ArrayList<>();
+        if (dataStart >= size) {
+            return out;
+        }
+
+        ByteBuffer buf = ByteBuffer.allocate(SCAN_BUFFER);
+        long chunkStart = dataStart;
+        long nextCut = dataStart + Math.max(1, targetChunkBytes);
+        boolean inQuotes = false;
+        long pos = dataStart;
+
+        scan:
+        while (pos < size && nextCut < size) {
+            buf.clear();
+            int n = ch.read(buf, pos);
+            if (n <= 0) {
+                break;
+            }
+            byte[] a = buf.array();
+            for (int i = 0; i < n; i++) {
+                byte b = a[i];
+                if (b == '"') {
+                    inQuotes = !inQuotes;
+                } else if (b == '\n' && !inQuotes && pos + i + 1 >= nextCut) {
+                    long end = pos + i + 1;
+                    out.add(new Range(chunkStart, end));
+                    chunkStart = end;
+                    nextCut = end + Math.max(1, targetChunkBytes);
+                    if (nextCut >= size) {
+                        break scan;
+                    }
+                }
+            }
+            pos += n;
+        }
+
+        if (chunkStart < size) {
+            out.add(new Range(chunkStart, size));
+        }
+        return out;
+    }
+}
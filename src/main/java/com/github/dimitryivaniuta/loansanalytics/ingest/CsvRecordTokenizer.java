@@ -0,0 +1,95 @@
+package com.github.dimitryivaniuta.loansanalytics.ingest;
+
+import java.util.Arrays;
+
+/**
+ * Splits one raw CSV record into unescaped fields, reusing its buffers from record to record.
+ *
+ * <p>Field bytes are unquoted ({@code ""} inside quotes becomes {@code "}) into one scratch array; a field is
+ * addressed by {@link #start(int)}/{@link #length(int)}. An unquoted empty field (NULL for COPY) has length -1,
+ * a quoted empty field ({@code ""}) length 0. Bytes between a closing quote and the delimiter are kept as-is,
+ * like COPY does.</p>
+ *
+ * <p>Not thread-safe: one instance per stream.</p>
+ */
+final class CsvRecordTokenizer {
+
+    private byte[] bytes = new byte[256];
+    private int[] start = new int[32];
+    private int[] length = new int[32];
+    private int count;
+
+    /**
+     * Tokenizes {@code rec[off, off+len)}, the record without its terminating LF (a trailing CR is ignored).
+     */
+    void tokenize(byte[] rec, int off, int len) {
+        int end = off + len;
+        if (end > off && rec[end - 1] == '\r') {
+            end--;
+        }
+        count = 0;
+        // unescaped fields are never longer than the record
+        if (bytes.length < end - off) {
+            bytes = new byte[Math.max(end - off, bytes.length * 2)];
+        }
+        byte[] out = bytes;
+        int pos = 0;
+        int i = off;
+        while (i <= end) {
+            int fieldStart = pos;
+            boolean quoted = i < end && rec[i] == '"';
+            if (quoted) {
+                i++;
+                while (i < end) {
+                    byte c = rec[i];
+                    if (c == '"') {
+                        if (i + 1 < end && rec[i + 1] == '"') {
+                            out[pos++] = '"';
+                            i += 2;
+                            continue;
+                        }
+                        i++;
+                        break;
+                    }
+                    out[pos++] = c;
+                    i++;
+                }
+            }
+            int from = i;
+            while (i < end && rec[i] != ',') {
+                i++;
+            }
+            System.arraycopy(rec, from, out, pos, i - from);
+            pos += i - from;
+
+            if (count == start.length) {
+                start = Arrays.copyOf(start, count * 2);
+                length = Arrays.copyOf(length, count * 2);
+            }
+            int n = pos - fieldStart;
+            start[count] = fieldStart;
+            length[count] = n == 0 && !quoted ? -1 : n;
+            count++;
+            i++; // skip the delimiter (or step past end)
+        }
+    }
+
+    int count() {
+        return count;
+    }
+
+    byte[] bytes() {
+        return bytes;
+    }
+
+    int start(int field) {
+        return start[field];
+    }
+
+    /**
+     * Unescaped length of {@code field}; -1 for an unquoted empty field (NULL).
+     */
+    int length(int field) {
+        return length[field];
+    }
+}
@@ -0,0 +1,299 @@
+package com.github.dimitryivaniuta.loansanalytics.ingest;
+
+import com.github.dimitryivaniuta.loansanalytics.ingest.ColumnTypeCatalog.ColumnType;
+import com.github.dimitryivaniuta.loansanalytics.ingest.feed.FeedDefinition;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Checks a tokenized CSV record against the feed's columns before it goes to COPY: field count, NULL primary
+ * key columns, NUL bytes, and the text form of typed columns, i.e. the row errors that would otherwise fail the
+ * whole COPY. Encoding errors and numeric precision overflows are still left to the server.
+ *
+ * <p>Typed checks work on the unescaped bytes without decoding or allocating. Accepted forms, after trimming
+ * spaces: integers and bigints in range; numerics as {@code [+-]digits[.digits][e[+-]digits]}, {@code NaN},
+ * {@code [+-]Infinity}; booleans as the Postgres words ({@code t/true/yes/on/1}, ...); dates as ISO
+ * {@code yyyy-mm-dd}; timestamps as ISO {@code yyyy-mm-dd[( |T)hh:mm[:ss[.fraction]]][Z|+hh[[:]mm]]}. Other
+ * date styles Postgres would parse are rejected, the feeds are ISO by contract.</p>
+ *
+ * <p>Stateless; may be shared by the streams of one file.</p>
+ */
+final class CsvRecordValidator {
+
+    enum Kind { TEXT, INTEGER, BIGINT, NUMERIC, BOOLEAN, DATE, TIMESTAMP }
+
+    private static final byte[][] BOOLEANS = words("t", "f", "true", "false", "y", "n", "yes", "no", "on", "off", "1", "0");
+    private static final byte[][] NUMERIC_WORDS = words("nan", "infinity", "+infinity", "-infinity");
+
+    private final String[] names;
+    private final Kind[] kinds;
+    private final boolean[] required;
+
+    /**
+     * @param feed        the feed
+     * @param types       types of {@code feed.dataColumns()}, in that order (see {@link ColumnTypeCatalog})
+     * @param fileColumns the file's columns (already mapped to DB names), in file order
+     */
+    CsvRecordValidator(FeedDefinition feed, List<ColumnType> types, List<String> fileColumns) {
+        int n = fileColumns.size();
+        this.names = fileColumns.toArray(new String[0]);
+        this.kinds = new Kind[n];
+        this.required = new boolean[n];
+        for (int f = 0; f < n; f++) {
+            int d = feed.dataColumns().indexOf(fileColumns.get(f));
+            kinds[f] = d < 0 ? Kind.TEXT : kindOf(types.get(d).dataType());
+            required[f] = feed.primaryKeyColumns().contains(fileColumns.get(f));
+        }
+    }
+
+    static Kind kindOf(String dataType) {
+        return switch (dataType) {
+            case "smallint", "integer" -> Kind.INTEGER;
+            case "bigint" -> Kind.BIGINT;
+            case "numeric", "real", "double precision" -> Kind.NUMERIC;
+            case "boolean" -> Kind.BOOLEAN;
+            case "date" -> Kind.DATE;
+            case "timestamp with time zone", "timestamp without time zone" -> Kind.TIMESTAMP;
+            default -> Kind.TEXT;
+        };
+    }
+
+    /**
+     * Returns {@code null} when the record is valid, otherwise the reject reason.
+     */
+    String validate(CsvRecordTokenizer fields) {
+        if (fields.count() != kinds.length) {
+            return "expected " + kinds.length + " fields, got " + fields.count();
+        }
+        byte[] b = fields.bytes();
+        for (int f = 0; f < kinds.length; f++) {
+            int len = fields.length(f);
+            if (len < 0) {
+                if (required[f]) {
+                    return names[f] + ": primary key column is empty";
+                }
+                continue;
+            }
+            int from = fields.start(f);
+            int to = from + len;
+            for (int i = from; i < to; i++) {
+                if (b[i] == 0) {
+                    return names[f] + ": contains a NUL byte";
+                }
+            }
+            if (kinds[f] == Kind.TEXT) {
+                continue;
+            }
+            while (from < to && b[from] == ' ') {
+                from++;
+            }
+            while (to > from && b[to - 1] == ' ') {
+                to--;
+            }
+            boolean ok = switch (kinds[f]) {
+                case INTEGER -> isInteger(b, from, to, 10, Integer.MIN_VALUE, Integer.MAX_VALUE);
+                case BIGINT -> isInteger(b, from, to, 19, Long.MIN_VALUE, Long.MAX_VALUE);
+                case NUMERIC -> isNumeric(b, from, to);
+                case BOOLEAN -> isOneOf(b, from, to, BOOLEANS);
+                case DATE -> dateEnd(b, from, to) == to;
+                case TIMESTAMP -> isTimestamp(b, from, to);
+                case TEXT -> true;
+            };
+            if (!ok) {
+                return names[f] + ": invalid " + kinds[f].name().toLowerCase(Locale.ROOT) + " '"
+                        + new String(b, fields.start(f), len, StandardCharsets.UTF_8) + "'";
+            }
+        }
+        return null;
+    }
+
+    static boolean isInteger(byte[] b, int from, int to, int maxDigits, long min, long max) {
+        int i = from;
+        boolean negative = false;
+        if (i < to && (b[i] == '+' || b[i] == '-')) {
+            negative = b[i] == '-';
+            i++;
+        }
+        if (i == to || to - i > maxDigits) {
+            return false;
+        }
+        long v = 0;
+        for (; i < to; i++) {
+            int d = b[i] - '0';
+            if (d < 0 || d > 9) {
+                return false;
+            }
+            // accumulate negatively so Long.MIN_VALUE fits; overflow shows as a sign flip
+            long next = v * 10 - d;
+            if (next > v) {
+                return false;
+            }
+            v = next;
+        }
+        return negative ? v >= min : v != Long.MIN_VALUE && -v <= max;
+    }
+
+    static boolean isNumeric(byte[] b, int from, int to) {
+        if (isOneOf(b, from, to, NUMERIC_WORDS)) {
+            return true;
+        }
+        int i = from;
+        if (i < to && (b[i] == '+' || b[i] == '-')) {
+            i++;
+        }
+        int digits = 0;
+        while (i < to && isDigit(b[i])) {
+            i++;
+            digits++;
+        }
+        if (i < to && b[i] == '.') {
+            i++;
+            while (i < to && isDigit(b[i])) {
+                i++;
+                digits++;
+            }
+        }
+        if (digits == 0) {
+            return false;
+        }
+        if (i < to && (b[i] == 'e' || b[i] == 'E')) {
+            i++;
+            if (i < to && (b[i] == '+' || b[i] == '-')) {
+                i++;
+            }
+            int exp = i;
+            while (i < to && isDigit(b[i])) {
+                i++;
+            }
+            if (i == exp) {
+                return false;
+            }
+        }
+        return i == to;
+    }
+
+    /**
+     * Parses {@code yyyy-mm-dd} at {@code from}; returns the index after it, or -1.
+     */
+    static int dateEnd(byte[] b, int from, int to) {
+        if (to - from < 10 || b[from + 4] != '-' || b[from + 7] != '-') {
+            return -1;
+        }
+        int year = digits(b, from, 4);
+        int month = digits(b, from + 5, 2);
+        int day = digits(b, from + 8, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1) {
+            return -1;
+        }
+        int maxDay = switch (month) {
+            case 2 -> (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+            case 4, 6, 9, 11 -> 30;
+            default -> 31;
+        };
+        return day <= maxDay ? from + 10 : -1;
+    }
+
+    static boolean isTimestamp(byte[] b, int from, int to) {
+        int i = dateEnd(b, from, to);
+        if (i < 0) {
+            return false;
+        }
+        if (i == to) {
+            return true;
+        }
+        if (b[i] != 'T' && b[i] != 't' && b[i] != ' ') {
+            return false;
+        }
+        i++;
+        // hh:mm[:ss[.fraction]]
+        if (to - i < 5 || b[i + 2] != ':' || !inRange(digits(b, i, 2), 0, 24) || !inRange(digits(b, i + 3, 2), 0, 59)) {
+            return false;
+        }
+        i += 5;
+        if (i < to && b[i] == ':') {
+            if (to - i < 3 || !inRange(digits(b, i + 1, 2), 0, 60)) {
+                return false;
+            }
+            i += 3;
+            if (i < to && b[i] == '.') {
+                int frac = ++i;
+                while (i < to && isDigit(b[i])) {
+                    i++;
+                }
+                if (i == frac) {
+                    return false;
+                }
+            }
+        }
+        // zone: Z | +hh | +hhmm | +hh:mm
+        if (i == to) {
+            return true;
+        }
+        if (b[i] == 'Z' || b[i] == 'z') {
+            return i + 1 == to;
+        }
+        if (b[i] != '+' && b[i] != '-') {
+            return false;
+        }
+        i++;
+        if (to - i < 2 || !inRange(digits(b, i, 2), 0, 15)) {
+            return false;
+        }
+        i += 2;
+        if (i < to && b[i] == ':') {
+            i++;
+        }
+        if (i == to) {
+            return true;
+        }
+        return to - i == 2 && inRange(digits(b, i, 2), 0, 59);
+    }
+
+    private static int digits(byte[] b, int from, int n) {
+        int v = 0;
+        for (int i = from; i < from + n; i++) {
+            if (!isDigit(b[i])) {
+                return -1;
+            }
+            v = v * 10 + (b[i] - '0');
+        }
+        return v;
+    }
+
+    private static boolean inRange(int v, int min, int max) {
+        return v >= min && v <= max;
+    }
+
+    private static boolean isDigit(byte c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isOneOf(byte[] b, int from, int to, byte[][] words) {
+        outer:
+        for (byte[] w : words) {
+            if (w.length != to - from) {
+                continue;
+            }
+            for (int i = 0; i < w.length; i++) {
+                byte c = b[from + i];
+                if (c >= 'A' && c <= 'Z') {
+                    c += 'a' - 'A';
+                }
+                if (c != w[i]) {
+                    continue outer;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private static byte[][] words(String... words) {
+        byte[][] out = new byte[words.length][];
+        for (int i = 0; i < words.length; i++) {
+            out[i] = words[i].getBytes(StandardCharsets.US_ASCII);
+        }
+        return out;
+    }
+}
@@ -0,0 +1,126 @@
+package com.github.dimitryivaniuta.loansanalytics.ingest;
+
+import com.github.dimitryivaniuta.loansanalytics.config.DataSourceConfig;
+import com.github.dimitryivaniuta.loansanalytics.ingest.DeltaRepository.DeltaEventRow;
+import com.github.dimitryivaniuta.loansanalytics.ingest.feed.FeedDefinition;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+import org.postgresql.PGConnection;
+import org.postgresql.core.Utils;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Delta reads of the downloads, on the {@code export} pool (see {@link DataSourceConfig}) so long streaming
+ * exports never wait for, or hold, the connections ingestion works with. Cursor reads run inside a transaction
+ * of {@link DataSourceConfig#EXPORT_TX}.
+ */
+@Repository
+public class DeltaExportRepository {
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    public DeltaExportRepository(@Qualifier(DataSourceConfig.EXPORT_JDBC) NamedParameterJdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    /**
+     * Streams the delta rows of a run/feed to {@code sink} through a server-side cursor, holding at most
+     * {@code fetchSize} rows in memory. Must be called inside a transaction: the Postgres driver only uses a
+     * cursor when autocommit is off. Returns the number of rows streamed.
+     */
+    public long streamDeltaRows(UUID runId, String feedName, LocalDate asOf, int fetchSize, Consumer<DeltaEventRow> sink) {
+        long[] rows = {0};
+        jdbc.getJdbcTemplate().query(con -> {
+            PreparedStatement ps = con.prepareStatement(
+                    """
+                    SELECT op, entity_key::text, before_row::text, after_row::text, changed_fields::text
+                    FROM delta_event
+                    WHERE as_of_date=? AND job_run_id=? AND feed_name=?
+                    ORDER BY entity_key
+                    """,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            ps.setObject(1, asOf);
+            ps.setObject(2, runId);
+            ps.setString(3, feedName);
+            return ps;
+        }, (RowCallbackHandler) rs -> sink.accept(DeltaRepository.DELTA_ROW_MAPPER.mapRow(rs, (int) rows[0]++)));
+        return rows[0];
+    }
+
+    /**
+     * Writes the delta rows of a run/feed as CSV (same header and columns as the row-based export) with
+     * {@code COPY ... TO STDOUT}: the server renders the CSV and the bytes are piped to {@code out} without
+     * building row objects. COPY takes no bind parameters, hence the inlined (escaped) literals.
+     * Returns the number of rows copied.
+     */
+    public long copyDeltaCsv(UUID runId, String feedName, LocalDate asOf, OutputStream out) {
+        return jdbc.getJdbcTemplate().execute((ConnectionCallback<Long>) con -> {
+            String sql = """
+                    COPY (
+                      SELECT feed_name, op, entity_key, changed_fields, before_row, after_row
+                      FROM delta_event
+                      WHERE as_of_date='%s' AND job_run_id='%s' AND feed_name='%s'
+                      ORDER BY entity_key
+                    ) TO STDOUT WITH (FORMAT csv, HEADER)
+                    """.formatted(asOf, runId, Utils.escapeLiteral(null, feedName, true));
+            try {
+                return con.unwrap(PGConnection.class).getCopyAPI().copyOut(sql, out);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Streams the delta rows of a run/feed with {@code before_row}/{@code after_row} expanded back into typed
+     * snapshot columns ({@code jsonb_populate_record} over the snapshot row type), through a server-side
+     * cursor like {@link #streamDeltaRows}. Result columns, in order: feed_name, op, the primary key columns,
+     * changed_fields (comma-separated column names), {@code before_<col>}... and {@code after_<col>}...
+     * for every data column. Must be called inside a transaction.
+     */
+    public void streamTypedDeltaRows(UUID runId, FeedDefinition feed, LocalDate asOf, int fetchSize, RowCallbackHandler handler) {
+        List<String> select = new ArrayList<>();
+        select.add("d.feed_name");
+        select.add("d.op");
+        for (String pk : feed.primaryKeyColumns()) {
+            select.add("coalesce(a." + pk + ", b." + pk + ") AS " + pk);
+        }
+        select.add("array_to_string(ARRAY(SELECT jsonb_object_keys(d.changed_fields) ORDER BY 1), ',') AS changed_fields");
+        for (String col : feed.dataColumns()) {
+            select.add("b." + col + " AS before_" + col);
+        }
+        for (String col : feed.dataColumns()) {
+            select.add("a." + col + " AS after_" + col);
+        }
+        String sql = """
+                SELECT %s
+                FROM delta_event d
+                LEFT JOIN LATERAL jsonb_populate_record(NULL::%s, d.before_row) b ON true
+                LEFT JOIN LATERAL jsonb_populate_record(NULL::%s, d.after_row) a ON true
+                WHERE d.as_of_date=? AND d.job_run_id=? AND d.feed_name=?
+                ORDER BY d.entity_key
+                """.formatted(String.join(", ", select), feed.snapshotTable(), feed.snapshotTable());
+
+        jdbc.getJdbcTemplate().query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            ps.setObject(1, asOf);
+            ps.setObject(2, runId);
+            ps.setString(3, feed.name().name());
+            return ps;
+        }, handler);
+    }
+}
@@ -2,10 +2,12 @@ package com.github.dimitryivaniuta.loansanalytics.ingest;
 
 import com.github.dimitryivaniuta.loansanalytics.ingest.feed.FeedDefinition;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Repository;
 
@@ -13,6 +15,14 @@ import org.springframework.stereotype.Repository;
 @RequiredArgsConstructor
 public class DeltaRepository {
 
+    static final RowMapper<DeltaEventRow> DELTA_ROW_MAPPER = (rs, rowNum) -> new DeltaEventRow(
+            rs.getString("op"),
+            rs.getString("entity_key"),
+            rs.getString("before_row"),
+            rs.getString("after_row"),
+            rs.getString("changed_fields")
+    );
+
     private final NamedParameterJdbcTemplate jdbc;
 
     /**
@@ -21,72 +31,127 @@ public class DeltaRepository {
      * <p>Change types:
      * <ul>
      *   <li>I - present in current, absent in previous</li>
-     *   <li>U - present in both, row_hash changed</li>
+     *   <li>U - present in both, row hash and at least one column value changed</li>
      *   <li>D - absent in current, present in previous</li>
      * </ul>
      *
-     * <p>For updates (U), {@code changed_fields} is computed as JSONB diff with before/after values per field.
+     * <p>For updates (U), {@code changed_fields} holds before/after values of the changed columns only, compared
+     * as typed columns and computed just for the rows whose hash differs.
      */
     public int generateDelta(UUID runId, FeedDefinition feed, LocalDate asOf, LocalDate prevAsOf) {
-        jdbc.update("DELETE FROM delta_event WHERE job_run_id=:id AND feed_name=:feed",
-                Map.of("id", runId, "feed", feed.name().name()));
+        deleteDelta(runId, feed, asOf);
+        return insertDelta(runId, feed, asOf, prevAsOf, 1, 0);
+    }
 
-        String join = feed.pkJoinCondition("c", "p");
-        String entityKey = feed.entityKeyJsonExpr("c", "p");
+    /**
+     * Creates the delta_event partition for {@code asOf} if missing. Call outside the feed transactions.
+     */
+    public void ensureDeltaPartition(LocalDate asOf) {
+        jdbc.queryForObject("SELECT ensure_daily_partition('delta_event', :asOf)", Map.of("asOf", asOf), String.class);
+    }
 
-        // remove snapshot metadata from payloads
-        String currPayload = "(to_jsonb(c) - 'as_of_date' - 'row_hash' - 'source_file' - 'ingested_at')";
-        String prevPayload = "(to_jsonb(p) - 'as_of_date' - 'row_hash' - 'source_file' - 'ingested_at')";
+    /**
+     * Drops (or only detaches, for archiving) delta_event day partitions older than {@code cutoff}.
+     */
+    public int retirePartitionsBefore(LocalDate cutoff, boolean detachOnly) {
+        String fn = detachOnly ? "detach_daily_partitions_before" : "drop_daily_partitions_before";
+        Integer n = jdbc.queryForObject("SELECT " + fn + "('delta_event', :cutoff)", Map.of("cutoff", cutoff), Integer.class);
+        return n == null ? 0 : n;
+    }
 
-        String anyPkNullInPrev = "p." + feed.primaryKeyColumns().get(0) + " IS NULL";
-        String anyPkNullInCurr = "c." + feed.primaryKeyColumns().get(0) + " IS NULL";
+    public void deleteDelta(UUID runId, FeedDefinition feed, LocalDate asOf) {
+        jdbc.update("DELETE FROM delta_event WHERE as_of_date=:asOf AND job_run_id=:id AND feed_name=:feed",
+                Map.of("asOf", asOf, "id", runId, "feed", feed.name().name()));
+    }
 
+    /**
+     * Inserts the delta rows of one key-hash bucket ({@code bucket} of {@code buckets}).
+     *
+     * <p>Both snapshot sides are filtered by the same hash of the primary key before the join, so buckets are
+     * disjoint, each join stays local to its bucket, and the union over all buckets equals the single-statement
+     * delta. With {@code buckets == 1} no filter is applied.</p>
+     */
+    public int insertDelta(UUID runId, FeedDefinition feed, LocalDate asOf, LocalDate prevAsOf, int buckets, int bucket) {
+        String bucketFilter = buckets <= 1
+                ? ""
+                : " AND (" + feed.pkHashExpr("s") + " & 2147483647) % " + buckets + " = " + bucket;
+
+        String pkCols = String.join(", ", feed.primaryKeyColumns());
+        String firstPk = feed.primaryKeyColumns().get(0);
+        List<String> keyCols = new ArrayList<>();
+        for (String pk : feed.primaryKeyColumns()) {
+            keyCols.add("coalesce(c." + pk + ", p." + pk + ") AS " + pk);
+        }
+
+        // remove snapshot metadata from payloads
+        String currPayload = "(to_jsonb(c) - 'as_of_date' - 'row_hash' - 'row_hash128' - 'source_file' - 'ingested_at')";
+        String prevPayload = "(to_jsonb(p) - 'as_of_date' - 'row_hash' - 'row_hash128' - 'source_file' - 'ingested_at')";
+
+        /*
+         * Phase 1 (keys): I/D/U candidates from PK + hashes only, a narrow join the covering
+         * (as_of_date, pk..) INCLUDE (row_hash, row_hash128) index can serve index-only. Hashes are compared
+         * like with like; rows loaded with different hash modes (switch-over day) are always candidates.
+         *
+         * Phase 2 (payloads): only for those keys, fetch both rows by PK, build payloads and the typed
+         * per-column diff (generated delta_diff_<feed> function, see FeedDefinition#diffFunctionSql). A U
+         * candidate with an empty diff (128-bit hash sees field text, e.g. 100.0 vs 100.00) is dropped.
+         */
         String sql = """
+                WITH changed_keys AS MATERIALIZED (
+                  SELECT %s,
+                         CASE WHEN p.%s IS NULL THEN 'I' WHEN c.%s IS NULL THEN 'D' ELSE 'U' END AS op
+                  FROM
+                    (SELECT %s, row_hash, row_hash128 FROM %s s WHERE s.as_of_date=:asOf%s) c
+                    FULL OUTER JOIN (SELECT %s, row_hash, row_hash128 FROM %s s WHERE s.as_of_date=:prev%s) p
+                      ON %s
+                  WHERE p.%s IS NULL OR c.%s IS NULL OR CASE
+                      WHEN p.row_hash128 IS NOT NULL AND c.row_hash128 IS NOT NULL THEN p.row_hash128 <> c.row_hash128
+                      WHEN p.row_hash IS NOT NULL AND c.row_hash IS NOT NULL THEN p.row_hash <> c.row_hash
+                      ELSE true
+                    END
+                )
                 INSERT INTO delta_event(
                   job_run_id, feed_name, as_of_date, op,
                   entity_key, old_row_hash, new_row_hash,
                   before_row, after_row, changed_fields, created_at
                 )
-                SELECT
-                  :id as job_run_id,
-                  :feed as feed_name,
-                  :asOf as as_of_date,
-                  CASE
-                    WHEN %s THEN 'I'
-                    WHEN %s THEN 'D'
-                    WHEN p.row_hash <> c.row_hash THEN 'U'
-                  END as op,
-                  %s as entity_key,
-                  p.row_hash as old_row_hash,
-                  c.row_hash as new_row_hash,
-                  CASE WHEN %s THEN NULL ELSE %s END as before_row,
-                  CASE WHEN %s THEN NULL ELSE %s END as after_row,
-                  CASE
-                    WHEN (p.row_hash <> c.row_hash) THEN jsonb_diff(%s, %s)
-                    ELSE '{}'::jsonb
-                  END as changed_fields,
-                  now() as created_at
-                FROM
-                  (SELECT * FROM %s WHERE as_of_date=:asOf) c
-                  FULL OUTER JOIN (SELECT * FROM %s WHERE as_of_date=:prev) p
-                    ON %s
-                WHERE
-                  (%s) OR (%s) OR (p.row_hash <> c.row_hash)
+                SELECT :id, :feed, :asOf, d.op, d.entity_key, d.old_row_hash, d.new_row_hash,
+                       d.before_row, d.after_row, d.changed_fields, now()
+                FROM (
+                  SELECT
+                    k.op,
+                    %s AS entity_key,
+                    coalesce(p.row_hash, encode(p.row_hash128, 'hex')) AS old_row_hash,
+                    coalesce(c.row_hash, encode(c.row_hash128, 'hex')) AS new_row_hash,
+                    CASE WHEN k.op = 'I' THEN NULL ELSE %s END AS before_row,
+                    CASE WHEN k.op = 'D' THEN NULL ELSE %s END AS after_row,
+                    CASE WHEN k.op = 'U' THEN %s ELSE '{}'::jsonb END AS changed_fields
+                  FROM changed_keys k
+                  LEFT JOIN %s c ON c.as_of_date=:asOf AND %s
+                  LEFT JOIN %s p ON p.as_of_date=:prev AND %s
+                ) d
+                WHERE d.op <> 'U' OR d.changed_fields <> '{}'::jsonb
                 """.formatted(
-                anyPkNullInPrev,
-                anyPkNullInCurr,
-                entityKey,
-                anyPkNullInPrev,
-                prevPayload,
-                anyPkNullInCurr,
-                currPayload,
+                String.join(", ", keyCols),
+                firstPk,
+                firstPk,
+                pkCols,
+                feed.snapshotTable(),
+                bucketFilter,
+                pkCols,
+                feed.snapshotTable(),
+                bucketFilter,
+                feed.pkJoinCondition("c", "p"),
+                firstPk,
+                firstPk,
+                feed.entityKeyJsonExpr("c", "p"),
                 prevPayload,
                 currPayload,
+                feed.diffFunctionName() + "(p, c)",
                 feed.snapshotTable(),
+                feed.pkJoinCondition("c", "k"),
                 feed.snapshotTable(),
-                join,
-                anyPkNullInPrev,
-                anyPkNullInCurr
+                feed.pkJoinCondition("p", "k")
         );
 
         return jdbc.update(sql, Map.of(
@@ -97,22 +162,85 @@ public class DeltaRepository {
         ));
     }
 
+    /**
+     * Generates the delta of {@code asOf} from the version table ({@code snapshot-storage=VERSIONED}): the versions
+     * closed on that day are the previous side, those opened on it the current side. Only changed keys have such
+     * versions, so nothing is compared for the rest of the portfolio; a key with both is a U (dropped when no typed
+     * column differs), only an opened version an I, only a closed one a D. The previous side is the last day
+     * applied before {@code asOf}, see {@link SnapshotVersionRepository}.
+     */
+    public int generateDeltaFromVersions(UUID runId, FeedDefinition feed, LocalDate asOf) {
+        deleteDelta(runId, feed, asOf);
+
+        // remove version metadata from payloads
+        String currPayload = "(to_jsonb(c) - 'valid_from' - 'valid_to' - 'row_hash' - 'row_hash128' - 'source_file' - 'ingested_at')";
+        String prevPayload = "(to_jsonb(p) - 'valid_from' - 'valid_to' - 'row_hash' - 'row_hash128' - 'source_file' - 'ingested_at')";
+        String firstPk = feed.primaryKeyColumns().get(0);
+
+        String sql = """
+                INSERT INTO delta_event(
+                  job_run_id, feed_name, as_of_date, op,
+                  entity_key, old_row_hash, new_row_hash,
+                  before_row, after_row, changed_fields, created_at
+                )
+                SELECT :id, :feed, :asOf, d.op, d.entity_key, d.old_row_hash, d.new_row_hash,
+                       d.before_row, d.after_row, d.changed_fields, now()
+                FROM (
+                  SELECT
+                    CASE WHEN p.%s IS NULL THEN 'I' WHEN c.%s IS NULL THEN 'D' ELSE 'U' END AS op,
+                    %s AS entity_key,
+                    coalesce(p.row_hash, encode(p.row_hash128, 'hex')) AS old_row_hash,
+                    coalesce(c.row_hash, encode(c.row_hash128, 'hex')) AS new_row_hash,
+                    CASE WHEN p.%s IS NULL THEN NULL ELSE %s END AS before_row,
+                    CASE WHEN c.%s IS NULL THEN NULL ELSE %s END AS after_row,
+                    CASE WHEN p.%s IS NOT NULL AND c.%s IS NOT NULL THEN %s ELSE '{}'::jsonb END AS changed_fields
+                  FROM (SELECT * FROM %s v WHERE v.valid_from = :asOf) c
+                  FULL OUTER JOIN (SELECT * FROM %s v WHERE v.valid_to = :asOf) p
+                    ON %s
+                ) d
+                WHERE d.op <> 'U' OR d.changed_fields <> '{}'::jsonb
+                """.formatted(
+                firstPk,
+                firstPk,
+                feed.entityKeyJsonExpr("c", "p"),
+                firstPk,
+                prevPayload,
+                firstPk,
+                currPayload,
+                firstPk,
+                firstPk,
+                feed.typedDiffExpr("p", "c"),
+                feed.versionTable(),
+                feed.versionTable(),
+                feed.pkJoinCondition("c", "p")
+        );
+
+        return jdbc.update(sql, Map.of(
+                "id", runId,
+                "feed", feed.name().name(),
+                "asOf", asOf
+        ));
+    }
+
     public List<DeltaEventRow> findDeltaRows(UUID runId, String feedName) {
+        LocalDate asOf = jdbc.queryForObject("SELECT as_of_date FROM job_run WHERE id=:id", Map.of("id", runId), LocalDate.class);
+        return findDeltaRows(runId, feedName, asOf);
+    }
+
+    /**
+     * Delta rows of a run/feed. {@code asOf} pins the query to a single delta_event partition, so its cost
+     * does not grow with the amount of history kept.
+     */
+    public List<DeltaEventRow> findDeltaRows(UUID runId, String feedName, LocalDate asOf) {
         return jdbc.query(
                 """
                 SELECT op, entity_key::text, before_row::text, after_row::text, changed_fields::text
                 FROM delta_event
-                WHERE job_run_id=:id AND feed_name=:feed
+                WHERE as_of_date=:asOf AND job_run_id=:id AND feed_name=:feed
                 ORDER BY entity_key
                 """,
-                Map.of("id", runId, "feed", feedName),
-                (rs, rowNum) -> new DeltaEventRow(
-                        rs.getString("op"),
-                        rs.getString("entity_key"),
-                        rs.getString("before_row"),
-                        rs.getString("after_row"),
-                        rs.getString("changed_fields")
-                )
+                Map.of("asOf", asOf, "id", runId, "feed", feedName),
+                DELTA_ROW_MAPPER
         );
     }
 
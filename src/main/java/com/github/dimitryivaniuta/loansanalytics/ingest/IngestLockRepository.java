@@ -0,0 +1,183 @@
+package com.github.dimitryivaniuta.loansanalytics.ingest;
+
+import com.github.dimitryivaniuta.loansanalytics.ingest.feed.FeedName;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import javax.sql.DataSource;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Postgres advisory locks per {@code (asOf, feed)}, so runs for the same day on different pods do not write the
+ * same snapshot partition at the same time.
+ *
+ * <p>The locks are transaction-scoped ({@code pg_advisory_xact_lock}): they must be taken inside the transaction
+ * that writes the snapshot and are released by its commit or rollback, so no connection is held outside the
+ * pipeline's own transactions. Time spent waiting is recorded as {@code ingest.feed.lock.wait} (tag
+ * {@code feed}).</p>
+ *
+ * <p>Work that spans several transactions takes a session-level lock instead ({@link SessionLock}), held on a
+ * connection of its own until closed: bucketed delta generation, whose snapshot upsert commits before the bucket
+ * statements read it on other connections ({@link #lockFeedSession}), and the retention pass, so only one pod
+ * retires partitions at a time.</p>
+ */
+@Repository
+@RequiredArgsConstructor
+@Slf4j
+public class IngestLockRepository {
+
+    // first key of the two-int advisory lock: keeps these locks apart from any other application's
+    static final int LOCK_CLASS = 0x4c4e5331;
+    static final int VERSIONS_LOCK_CLASS = 0x4c4e5332;
+    static final int RETENTION_LOCK_CLASS = 0x4c4e5333;
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final DataSource dataSource;
+    private final MeterRegistry registry;
+
+    /**
+     * Blocks until this transaction holds the exclusive lock for {@code (asOf, feed)}.
+     */
+    public void lockFeed(LocalDate asOf, FeedName feed) {
+        lock("SELECT pg_advisory_xact_lock(:cls, :key)", LOCK_CLASS, lockKey(asOf, feed), feed);
+    }
+
+    /**
+     * Blocks until this transaction holds the exclusive lock for all days of {@code feed}: with VERSIONED snapshot
+     * storage every day's load changes the same version rows, so days of a feed are applied one at a time.
+     */
+    public void lockFeedVersions(FeedName feed) {
+        lock("SELECT pg_advisory_xact_lock(:cls, :key)", VERSIONS_LOCK_CLASS, feed.name().hashCode(), feed);
+    }
+
+    /**
+     * Blocks until the exclusive lock for {@code (asOf, feed)} is held at session level, on a connection of its own,
+     * and keeps it until the returned lock is closed. The transactions it covers must not call {@link #lockFeed}:
+     * they run on other connections and would wait for this lock.
+     */
+    public SessionLock lockFeedSession(LocalDate asOf, FeedName feed) {
+        long t0 = System.nanoTime();
+        SessionLock held = sessionLock("SELECT pg_advisory_lock(?, ?)", LOCK_CLASS, lockKey(asOf, feed), false);
+        recordWait(feed, t0);
+        return held;
+    }
+
+    /**
+     * Takes the retention lock unless another pod holds it (then empty); release it by closing the lock.
+     */
+    public Optional<SessionLock> tryLockRetention() {
+        return Optional.ofNullable(sessionLock("SELECT pg_try_advisory_lock(?, ?)", RETENTION_LOCK_CLASS, 0, true));
+    }
+
+    static int lockKey(LocalDate asOf, FeedName feed) {
+        // String/Long hash codes are specified, so every pod derives the same key
+        return Objects.hash(asOf.toEpochDay(), feed.name());
+    }
+
+    /**
+     * Runs {@code sql} (a session-level advisory lock function) on a connection of its own and keeps that
+     * connection checked out while the lock is held; {@code null} when a try-lock did not get it.
+     */
+    private SessionLock sessionLock(String sql, int lockClass, int key, boolean tryOnly) {
+        Connection connection = null;
+        try {
+            connection = dataSource.getConnection();
+            boolean locked = true;
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                ps.setInt(1, lockClass);
+                ps.setInt(2, key);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (tryOnly) {
+                        locked = rs.next() && rs.getBoolean(1);
+                    }
+                }
+            }
+            if (!locked) {
+                connection.close();
+                return null;
+            }
+            return new SessionLock(connection, lockClass, key);
+        } catch (SQLException e) {
+            if (connection != null) {
+                discard(connection);
+            }
+            throw new CannotAcquireLockException("Could not take advisory lock " + lockClass + "/" + key, e);
+        }
+    }
+
+    /**
+     * Drops a connection that may still hold a session lock instead of returning it to the pool.
+     */
+    private void discard(Connection connection) {
+        try {
+            if (dataSource instanceof HikariDataSource hikari) {
+                hikari.evictConnection(connection);
+            } else {
+                connection.close();
+            }
+        } catch (SQLException e) {
+            log.warn("Could not close lock connection: {}", e.getMessage());
+        }
+    }
+
+    private void lock(String sql, int lockClass, int key, FeedName feed) {
+        long t0 = System.nanoTime();
+        jdbc.query(sql, Map.of("cls", lockClass, "key", key), rs -> { });
+        recordWait(feed, t0);
+    }
+
+    private void recordWait(FeedName feed, long t0) {
+        Timer.builder("ingest.feed.lock.wait")
+                .tag("feed", feed.name())
+                .register(registry)
+                .record(System.nanoTime() - t0, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * A session-level advisory lock and the connection holding it. {@link #close()} unlocks and returns the
+     * connection to the pool (or evicts it when the unlock fails, so the lock cannot leak into the pool).
+     */
+    public final class SessionLock implements AutoCloseable {
+
+        private final Connection connection;
+        private final int lockClass;
+        private final int key;
+
+        private SessionLock(Connection connection, int lockClass, int key) {
+            this.connection = connection;
+            this.lockClass = lockClass;
+            this.key = key;
+        }
+
+        @Override
+        public void close() {
+            try (PreparedStatement ps = connection.prepareStatement("SELECT pg_advisory_unlock(?, ?)")) {
+                ps.setInt(1, lockClass);
+                ps.setInt(2, key);
+                ps.execute();
+            } catch (SQLException e) {
+                log.warn("Could not release advisory lock {}/{}: {}", lockClass, key, e.getMessage());
+                discard(connection);
+                return;
+            }
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                log.warn("Could not close lock connection: {}", e.getMessage());
+            }
+        }
+    }
+}
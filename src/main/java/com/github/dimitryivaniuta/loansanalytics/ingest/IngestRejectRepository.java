@@ -0,0 +1,43 @@
+package com.github.dimitryivaniuta.loansanalytics.ingest;
+
+import com.github.dimitryivaniuta.loansanalytics.ingest.feed.FeedName;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Rows rejected by CSV validation, kept in {@code ingest_reject} with the raw record and the reason.
+ */
+@Repository
+@RequiredArgsConstructor
+public class IngestRejectRepository {
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    public void insertBatch(UUID runId, FeedName feed, LocalDate asOf, String sourceFile, List<Reject> rejects) {
+        if (rejects.isEmpty()) {
+            return;
+        }
+        MapSqlParameterSource[] batch = new MapSqlParameterSource[rejects.size()];
+        for (int i = 0; i < batch.length; i++) {
+            Reject r = rejects.get(i);
+            batch[i] = new MapSqlParameterSource()
+                    .addValue("id", runId)
+                    .addValue("feed", feed.name())
+                    .addValue("asOf", asOf)
+                    .addValue("file", sourceFile)
+                    .addValue("reason", r.reason())
+                    .addValue("raw", r.rawRow());
+        }
+        jdbc.batchUpdate("""
+                INSERT INTO ingest_reject(job_run_id, feed_name, as_of_date, source_file, reason, raw_row)
+                VALUES (:id, :feed, :asOf, :file, :reason, :raw)
+                """, batch);
+    }
+
+    public record Reject(String reason, String rawRow) {}
+}
@@ -1,20 +1,24 @@
 package com.github.dimitryivaniuta.loansanalytics.ingest;
 
 import com.github.dimitryivaniuta.loansanalytics.LoansIngestionProperties;
+import com.github.dimitryivaniuta.loansanalytics.export.DeltaArtifactStore;
 import com.github.dimitryivaniuta.loansanalytics.ingest.feed.FeedDefinition;
 import com.github.dimitryivaniuta.loansanalytics.ingest.feed.FeedName;
 import com.github.dimitryivaniuta.loansanalytics.ingest.feed.FeedRegistry;
 import java.nio.file.Path;
 import java.time.Instant;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import javax.sql.DataSource;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 /**
  * Multi-feed ingestion orchestrator.
@@ -22,10 +26,21 @@ import org.springframework.transaction.annotation.Transactional;
  * <p>For each enabled feed:
  * <ul>
  *   <li>locate the feed file for the day</li>
- *   <li>COPY-load into feed-specific staging table</li>
+ *   <li>COPY-load into a per-run UNLOGGED staging table (dropped once consumed)</li>
  *   <li>upsert into feed-specific snapshot table</li>
- *   <li>generate feed delta vs previous day into unified delta_event table</li>
+ *   <li>generate feed delta vs the baseline day ({@link BaselineStrategy}) into unified delta_event table</li>
+ *   <li>optionally write the finished CSV export to the artifact directory ({@link DeltaArtifactStore})</li>
  * </ul>
+ *
+ * <p>Feeds are independent of each other and may run in parallel on a bounded pool of virtual threads.</p>
+ *
+ * <p>REST and CLI runs go through {@link IngestionRunScheduler}, which records them with {@link #queueRun} and
+ * executes them with {@link #runQueued}. Snapshot writes hold an advisory lock per (asOf, feed), see
+ * {@link IngestLockRepository}.</p>
+ *
+ * <p>With {@code loans.ingestion.snapshot-storage=VERSIONED} the staged rows are applied to the feed's version
+ * table instead of a daily snapshot partition and the delta is read from the versions closed/opened on the day,
+ * see {@link SnapshotVersionRepository}.</p>
  */
 @Service
 @RequiredArgsConstructor
@@ -38,56 +53,297 @@ public class IngestionOrchestrator {
     private final PostgresCopyService copyService;
     private final SnapshotRepository snapshotRepository;
     private final DeltaRepository deltaRepository;
+    private final SnapshotDeltaMergeRepository mergeRepository;
     private final JobRunAuditService audit;
+    private final TransactionTemplate tx;
+    private final DataSource dataSource;
+    private final BulkConnectionSlots bulkSlots;
+    private final IngestLockRepository locks;
+    private final SnapshotVersionRepository versionRepository;
+    private final BaselineStrategy baselineStrategy;
+    private final DeltaArtifactStore artifacts;
 
-    @Transactional
     public UUID ingestAndGenerateDelta(LocalDate asOf) {
-        Set<FeedName> enabled = parseEnabledFeeds(props.enabledFeeds());
-        return ingestAndGenerateDelta(asOf, enabled);
+        return ingestAndGenerateDelta(asOf, enabledFeeds());
+    }
+
+    public Set<FeedName> enabledFeeds() {
+        return parseEnabledFeeds(props.enabledFeeds());
     }
 
-    @Transactional
+    /**
+     * Runs the pipeline for the given feeds.
+     *
+     * <p>Each feed is its own unit of work (COPY, then one transaction for upsert + delta), so feeds can run
+     * concurrently when {@code loans.ingestion.feed-parallelism > 1}. The run succeeds only if every feed does.</p>
+     */
     public UUID ingestAndGenerateDelta(LocalDate asOf, Set<FeedName> feeds) {
+        UUID runId = startRun(asOf);
+        runFeeds(runId, asOf, feeds);
+        return runId;
+    }
+
+    /**
+     * Records a run that waits in the scheduler queue (status QUEUED) and returns its id.
+     */
+    public UUID queueRun(LocalDate asOf) {
+        UUID runId = UUID.randomUUID();
+        audit.queueRun(runId, asOf, Instant.now());
+        return runId;
+    }
+
+    /**
+     * Executes a run recorded by {@link #queueRun}; the outcome is recorded in the run audit and failures rethrown.
+     */
+    public void runQueued(UUID runId, LocalDate asOf, Set<FeedName> feeds) {
+        audit.markStarted(runId, Instant.now());
+        runFeeds(runId, asOf, feeds);
+    }
+
+    /**
+     * Marks a queued run that will not be executed (e.g. on shutdown) as failed.
+     */
+    public void abandonQueuedRun(UUID runId, String reason) {
+        audit.finishRun(runId, Instant.now(), "FAILED", reason);
+    }
+
+    private UUID startRun(LocalDate asOf) {
         UUID runId = UUID.randomUUID();
-        Instant startedAt = Instant.now();
-        audit.startRun(runId, asOf, startedAt);
+        audit.startRun(runId, asOf, Instant.now());
+        return runId;
+    }
 
+    private void runFeeds(UUID runId, LocalDate asOf, Set<FeedName> feeds) {
         try {
-            LocalDate prev = asOf.minusDays(1);
+            deltaRepository.ensureDeltaPartition(asOf);
+
+            // concurrent runs share the pool: each feed slot stands for its own connections per possible run
+            int parallelism = ParallelTasks.capToPool(dataSource, Math.min(props.feedParallelism(), feeds.size()),
+                    props.runs().maxConcurrent() * props.delta().connectionsPerFeed());
+            log.info("Run {} asOf={} feeds={} parallelism={}", runId, asOf, feeds, parallelism);
 
+            List<Callable<Void>> tasks = new ArrayList<>(feeds.size());
             for (FeedName fn : feeds) {
-                FeedDefinition feed = registry.get(fn);
-                Path file = fileLocator.locate(feed, asOf);
-                audit.startFeed(runId, fn, Instant.now(), file.getFileName().toString());
+                tasks.add(() -> {
+                    ingestFeed(runId, fn, asOf);
+                    return null;
+                });
+            }
+            ParallelTasks.invokeAll("ingest-feed-", parallelism, tasks);
 
-                try {
-                    snapshotRepository.truncateStaging(runId, feed, asOf);
-                    long copied = copyService.copyIntoStaging(runId, asOf, feed, file);
-                    long staged = snapshotRepository.countStagedRows(runId, feed, asOf);
-                    log.info("Run {} feed {} copied={} staged={}", runId, fn, copied, staged);
+            audit.finishRun(runId, Instant.now(), "SUCCESS", null);
+        } catch (Exception e) {
+            audit.finishRun(runId, Instant.now(), "FAILED", e.getMessage());
+            throw e;
+        }
+    }
+
+    private void ingestFeed(UUID runId, FeedName fn, LocalDate asOf) {
+        FeedDefinition feed = registry.get(fn);
+        Path file = fileLocator.locate(feed, asOf);
+        LocalDate prev = baselineFor(feed, asOf);
+        log.info("Run {} feed {} asOf={} baseline={}", runId, fn, asOf, prev);
+        audit.startFeed(runId, fn, asOf, prev, Instant.now(), file.getFileName().toString());
+
+        try {
+            long t0 = System.nanoTime();
+            snapshotRepository.createRunStaging(runId, feed);
+            long copied = copyService.copyIntoStaging(runId, asOf, feed, file);
+            long copyMs = millisSince(t0);
+
+            int buckets = props.delta().bucketsFor(fn);
+            FeedCounts counts;
+            if (props.snapshotStorage() == LoansIngestionProperties.SnapshotStorage.VERSIONED) {
+                counts = tx.execute(status -> {
+                    locks.lockFeedVersions(fn);
+                    FeedCounts loaded = applyVersions(runId, feed, asOf, prev, copied);
 
-                    snapshotRepository.upsertSnapshotFromStaging(runId, feed, asOf);
-                    long snap = snapshotRepository.countSnapshot(feed, asOf);
+                    long t2 = System.nanoTime();
+                    int delta = deltaRepository.generateDeltaFromVersions(runId, feed, asOf);
+                    long deltaMs = millisSince(t2);
 
+                    snapshotRepository.dropRunStaging(runId, feed);
+                    return loaded.withDelta(delta, deltaMs);
+                });
+            } else if (buckets <= 1 && props.delta().singlePass()) {
+                snapshotRepository.ensureSnapshotPartition(feed, asOf);
+                counts = tx.execute(status -> {
+                    locks.lockFeed(asOf, fn);
+                    FeedCounts merged = upsertSnapshotAndDelta(runId, feed, asOf, prev);
+                    snapshotRepository.dropRunStaging(runId, feed);
+                    return merged;
+                });
+            } else if (buckets <= 1) {
+                snapshotRepository.ensureSnapshotPartition(feed, asOf);
+                counts = tx.execute(status -> {
+                    locks.lockFeed(asOf, fn);
+                    FeedCounts loaded = upsertSnapshot(runId, feed, asOf, copied);
+
+                    long t2 = System.nanoTime();
                     int delta = deltaRepository.generateDelta(runId, feed, asOf, prev);
+                    long deltaMs = millisSince(t2);
+
+                    snapshotRepository.dropRunStaging(runId, feed);
+                    return loaded.withDelta(delta, deltaMs);
+                });
+            } else {
+                snapshotRepository.ensureSnapshotPartition(feed, asOf);
+                // Bucket statements run on their own connections and must see the committed snapshot, so the feed
+                // lock is held at session level from before the upsert until the last bucket has finished.
+                try (var held = locks.lockFeedSession(asOf, fn)) {
+                    FeedCounts loaded = tx.execute(status -> upsertSnapshot(runId, feed, asOf, copied));
 
-                    snapshotRepository.deleteStaging(runId, feed);
-                    audit.finishFeed(runId, fn, Instant.now(), "SUCCESS", staged, snap, delta, null);
-                } catch (Exception e) {
-                    log.error("Run {} feed {} failed", runId, fn, e);
-                    audit.finishFeed(runId, fn, Instant.now(), "FAILED", null, null, null, e.getMessage());
-                    throw e;
+                    long t2 = System.nanoTime();
+                    int delta = generateDeltaInBuckets(runId, feed, asOf, prev, buckets);
+                    long deltaMs = millisSince(t2);
+
+                    snapshotRepository.dropRunStaging(runId, feed);
+                    counts = loaded.withDelta(delta, deltaMs);
                 }
             }
 
-            audit.finishRun(runId, Instant.now(), "SUCCESS", null);
-            return runId;
+            writeArtifacts(runId, fn, asOf);
+
+            audit.finishFeed(runId, fn, Instant.now(), "SUCCESS", counts.staged(), counts.snapshot(), counts.delta(),
+                    new JobRunRepository.FeedTimings(copyMs, counts.upsertMs(), counts.deltaMs()), null);
         } catch (Exception e) {
-            audit.finishRun(runId, Instant.now(), "FAILED", e.getMessage());
+            log.error("Run {} feed {} failed", runId, fn, e);
+            audit.finishFeed(runId, fn, Instant.now(), "FAILED", null, null, null, null, e.getMessage());
             throw e;
         }
     }
 
+    /**
+     * Best effort: without an artifact, downloads stream from delta_event as before, so a failed write only
+     * logs a warning.
+     */
+    private void writeArtifacts(UUID runId, FeedName fn, LocalDate asOf) {
+        if (!artifacts.enabled()) {
+            return;
+        }
+        long t0 = System.nanoTime();
+        try {
+            artifacts.write(runId, fn, asOf);
+            log.info("Run {} feed {} delta artifacts written in {} ms", runId, fn, millisSince(t0));
+        } catch (Exception e) {
+            log.warn("Run {} feed {} delta artifacts not written: {}", runId, fn, e.getMessage());
+        }
+    }
+
+    /**
+     * The day the feed's delta is compared with. VERSIONED storage always compares with the last day applied to
+     * the version table; the strategy only picks the daily snapshot that seeds a feed without history.
+     */
+    private LocalDate baselineFor(FeedDefinition feed, LocalDate asOf) {
+        LocalDate baseline = baselineStrategy.baselineFor(feed.name(), asOf);
+        if (props.snapshotStorage() == LoansIngestionProperties.SnapshotStorage.VERSIONED) {
+            LocalDate previousLoad = versionRepository.findPreviousLoad(feed, asOf);
+            return previousLoad != null ? previousLoad : baseline;
+        }
+        return baseline;
+    }
+
+    /**
+     * Upserts the snapshot. The audit counts are the rows COPY loaded and the rows the upsert wrote; with
+     * {@code loans.ingestion.verify-counts} they are re-counted with {@code COUNT(*)} over staging and the
+     * day's snapshot instead (full scans, kept out of the upsert timing).
+     */
+    private FeedCounts upsertSnapshot(UUID runId, FeedDefinition feed, LocalDate asOf, long copied) {
+        long t1 = System.nanoTime();
+        long upserted = snapshotRepository.upsertSnapshotFromStaging(runId, feed, asOf);
+        long upsertMs = millisSince(t1);
+        log.info("Run {} feed {} copied={} upserted={}", runId, feed.name(), copied, upserted);
+
+        if (!props.verifyCounts()) {
+            return new FeedCounts(copied, upserted, 0, upsertMs, 0);
+        }
+        long staged = snapshotRepository.countStagedRows(runId, feed, asOf);
+        long snap = snapshotRepository.countSnapshot(feed, asOf);
+        if (staged != copied) {
+            log.warn("Run {} feed {} staged={} differs from copied={}", runId, feed.name(), staged, copied);
+        }
+        return new FeedCounts(staged, snap, 0, upsertMs, 0);
+    }
+
+    /**
+     * VERSIONED variant of {@link #upsertSnapshot}: the snapshot count is the number of versions opened (rows
+     * written), or with {@code verify-counts} the rows valid on {@code asOf}.
+     */
+    private FeedCounts applyVersions(UUID runId, FeedDefinition feed, LocalDate asOf, LocalDate prev, long copied) {
+        long t1 = System.nanoTime();
+        var versions = versionRepository.applyDay(runId, feed, asOf, prev);
+        long upsertMs = millisSince(t1);
+        log.info("Run {} feed {} copied={} versions closed={} opened={}",
+                runId, feed.name(), copied, versions.closed(), versions.opened());
+
+        if (!props.verifyCounts()) {
+            return new FeedCounts(copied, versions.opened(), 0, upsertMs, 0);
+        }
+        long staged = snapshotRepository.countStagedRows(runId, feed, asOf);
+        long snap = versionRepository.countAsOf(feed, asOf);
+        if (staged != copied) {
+            log.warn("Run {} feed {} staged={} differs from copied={}", runId, feed.name(), staged, copied);
+        }
+        return new FeedCounts(staged, snap, 0, upsertMs, 0);
+    }
+
+    /**
+     * Single-pass variant: one statement upserts the snapshot and writes the delta; its time is reported as
+     * upsert time (delta 0 ms), the snapshot count is the number of rows upserted.
+     */
+    private FeedCounts upsertSnapshotAndDelta(UUID runId, FeedDefinition feed, LocalDate asOf, LocalDate prev) {
+        long t1 = System.nanoTime();
+        deltaRepository.deleteDelta(runId, feed, asOf);
+        var merged = mergeRepository.upsertSnapshotAndInsertDelta(runId, feed, asOf, prev);
+        log.info("Run {} feed {} single-pass staged={} upserted={} delta={}",
+                runId, feed.name(), merged.staged(), merged.upserted(), merged.delta());
+        return new FeedCounts(merged.staged(), merged.upserted(), merged.delta(), millisSince(t1), 0);
+    }
+
+    /**
+     * Replaces the feed's delta rows with {@code buckets} key-hash buckets generated concurrently,
+     * each in its own transaction on its own connection. The caller holds the feed's session lock.
+     *
+     * <p>Buckets commit independently, so when one fails the rows the others committed are deleted before the
+     * failure is rethrown (and the feed recorded as FAILED): a failed feed never leaves a partial delta behind.</p>
+     */
+    private int generateDeltaInBuckets(UUID runId, FeedDefinition feed, LocalDate asOf, LocalDate prev, int buckets) {
+        deltaRepository.deleteDelta(runId, feed, asOf);
+
+        List<Callable<Integer>> tasks = new ArrayList<>(buckets);
+        for (int b = 0; b < buckets; b++) {
+            int bucket = b;
+            tasks.add(() -> bulkSlots.call(() -> tx.execute(
+                    status -> deltaRepository.insertDelta(runId, feed, asOf, prev, buckets, bucket))));
+        }
+
+        int total = 0;
+        try {
+            for (int rows : ParallelTasks.invokeAll("delta-" + feed.name() + "-", buckets, tasks)) {
+                total += rows;
+            }
+        } catch (RuntimeException e) {
+            try {
+                deltaRepository.deleteDelta(runId, feed, asOf);
+            } catch (RuntimeException cleanup) {
+                e.addSuppressed(cleanup);
+            }
+            throw e;
+        }
+        log.info("Run {} feed {} delta buckets={} rows={}", runId, feed.name(), buckets, total);
+        return total;
+    }
+
+    private record FeedCounts(long staged, long snapshot, int delta, long upsertMs, long deltaMs) {
+        FeedCounts withDelta(int delta, long deltaMs) {
+            return new FeedCounts(staged, snapshot, delta, upsertMs, deltaMs);
+        }
+    }
+
+    private static long millisSince(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000L;
+    }
+
     private static Set<FeedName> parseEnabledFeeds(List<String> configured) {
         Set<FeedName> out = new HashSet<>();
         if (configured == null || configured.isEmpty()) {
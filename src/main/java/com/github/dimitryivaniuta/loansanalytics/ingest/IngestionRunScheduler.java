@@ -0,0 +1,272 @@
+package com.github.dimitryivaniuta.loansanalytics.ingest;
+
+import com.github.dimitryivaniuta.loansanalytics.LoansIngestionProperties;
+import com.github.dimitryivaniuta.loansanalytics.ingest.feed.FeedName;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-process run queue in front of {@link IngestionOrchestrator}, used by the REST endpoint and the CLI runner.
+ *
+ * <ul>
+ *   <li>at most {@code loans.ingestion.runs.max-concurrent} runs execute at once, each on its own virtual thread,
+ *   and never two for the same asOf; a run whose day is busy waits while later runs for other days may start</li>
+ *   <li>up to {@code queue-capacity} runs wait (recorded as QUEUED in job_run); a request for the same asOf and
+ *   feed set as a waiting run is merged into it, further requests fail with {@link RunQueueFullException}</li>
+ *   <li>a run that is already executing is not merged into: it may have read its files before they were
+ *   replaced, so a repeated request queues behind it</li>
+ * </ul>
+ *
+ * <p>Coordination across pods is left to the per-(asOf, feed) advisory locks the pipeline takes for its snapshot
+ * writes ({@link IngestLockRepository}). Meters: {@code ingest.runs.queued} and {@code ingest.runs.active}
+ * (gauges), {@code ingest.runs.queue.wait} (timer), {@code ingest.runs.merged} and {@code ingest.runs.refused}
+ * (counters).</p>
+ */
+@Component
+@Slf4j
+public class IngestionRunScheduler {
+
+    /**
+     * The pipeline operations the scheduler drives; {@link IngestionOrchestrator} outside of tests.
+     */
+    interface Runs {
+        UUID queue(LocalDate asOf);
+
+        void run(UUID runId, LocalDate asOf, Set<FeedName> feeds);
+
+        void abandon(UUID runId, String reason);
+    }
+
+    private final Runs runs;
+    private final int maxConcurrent;
+    private final int queueCapacity;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Deque<QueuedRun> queue = new ArrayDeque<>();
+    private final List<QueuedRun> active = new ArrayList<>();
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("ingest-run-", 0).factory());
+    private final Timer queueWait;
+    private final Counter merged;
+    private final Counter refused;
+    private boolean shutdown;
+
+    @Autowired
+    public IngestionRunScheduler(IngestionOrchestrator orchestrator, LoansIngestionProperties props,
+                                 MeterRegistry registry) {
+        this(new Runs() {
+            @Override
+            public UUID queue(LocalDate asOf) {
+                return orchestrator.queueRun(asOf);
+            }
+
+            @Override
+            public void run(UUID runId, LocalDate asOf, Set<FeedName> feeds) {
+                orchestrator.runQueued(runId, asOf, feeds);
+            }
+
+            @Override
+            public void abandon(UUID runId, String reason) {
+                orchestrator.abandonQueuedRun(runId, reason);
+            }
+        }, props.runs(), registry);
+    }
+
+    IngestionRunScheduler(Runs runs, LoansIngestionProperties.Runs config, MeterRegistry registry) {
+        this.runs = runs;
+        this.maxConcurrent = config.maxConcurrent();
+        this.queueCapacity = config.queueCapacity();
+        Gauge.builder("ingest.runs.queued", this, IngestionRunScheduler::queued).register(registry);
+        Gauge.builder("ingest.runs.active", this, IngestionRunScheduler::active).register(registry);
+        this.queueWait = Timer.builder("ingest.runs.queue.wait").register(registry);
+        this.merged = Counter.builder("ingest.runs.merged").register(registry);
+        this.refused = Counter.builder("ingest.runs.refused").register(registry);
+    }
+
+    /**
+     * Queues a run (or merges into an identical waiting one) and starts whatever the limits allow.
+     *
+     * <p>The QUEUED job_run row is written without holding the scheduler lock, which guards the in-memory queue
+     * only. If an identical run got queued (or the queue filled up) meanwhile, the new row is marked as abandoned.</p>
+     *
+     * @throws RunQueueFullException when {@code queue-capacity} runs are already waiting
+     */
+    public Submission submit(LocalDate asOf, Set<FeedName> feeds) {
+        Set<FeedName> key = feeds.isEmpty() ? EnumSet.noneOf(FeedName.class) : EnumSet.copyOf(feeds);
+        lock.lock();
+        try {
+            Submission existing = mergeOrRefuse(asOf, key);
+            if (existing != null) {
+                return existing;
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        UUID runId = runs.queue(asOf);
+        Submission submission;
+        try {
+            submission = enqueue(runId, asOf, key);
+        } catch (RunQueueFullException e) {
+            runs.abandon(runId, "Not started: " + e.getMessage());
+            throw e;
+        }
+        if (submission.merged()) {
+            runs.abandon(runId, "Not started: merged into queued run " + submission.runId());
+        }
+        return submission;
+    }
+
+    private Submission enqueue(UUID runId, LocalDate asOf, Set<FeedName> key) {
+        lock.lock();
+        try {
+            // re-checked: another request may have been queued while the job_run row was written
+            Submission existing = mergeOrRefuse(asOf, key);
+            if (existing != null) {
+                return existing;
+            }
+            QueuedRun q = new QueuedRun(runId, asOf, key, System.nanoTime(), new CompletableFuture<>());
+            queue.addLast(q);
+            log.info("Run {} asOf={} feeds={} queued (waiting={}, active={})",
+                    q.runId(), asOf, key, queue.size(), active.size());
+            dispatch();
+            return new Submission(q.runId(), false, q.done().copy());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The submission merged into an identical waiting run, or {@code null} when a new run may be queued.
+     * Caller holds the lock.
+     *
+     * @throws RunQueueFullException when shut down or {@code queue-capacity} runs are already waiting
+     */
+    private Submission mergeOrRefuse(LocalDate asOf, Set<FeedName> key) {
+        if (shutdown) {
+            throw new RunQueueFullException("Run scheduler is shut down");
+        }
+        for (QueuedRun q : queue) {
+            if (q.asOf().equals(asOf) && q.feeds().equals(key)) {
+                merged.increment();
+                log.info("Run request asOf={} feeds={} merged into queued run {}", asOf, key, q.runId());
+                return new Submission(q.runId(), true, q.done().copy());
+            }
+        }
+        if (queue.size() >= queueCapacity) {
+            refused.increment();
+            throw new RunQueueFullException("Run queue is full (" + queueCapacity + " waiting runs)");
+        }
+        return null;
+    }
+
+    int queued() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int active() {
+        lock.lock();
+        try {
+            return active.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Starts waiting runs in queue order while slots are free, skipping runs whose day is already running.
+     * Caller holds the lock.
+     */
+    private void dispatch() {
+        Iterator<QueuedRun> it = queue.iterator();
+        while (active.size() < maxConcurrent && it.hasNext()) {
+            QueuedRun q = it.next();
+            if (active.stream().anyMatch(a -> a.asOf().equals(q.asOf()))) {
+                continue;
+            }
+            it.remove();
+            active.add(q);
+            queueWait.record(System.nanoTime() - q.queuedAtNanos(), TimeUnit.NANOSECONDS);
+            executor.execute(() -> execute(q));
+        }
+    }
+
+    private void execute(QueuedRun q) {
+        try {
+            runs.run(q.runId(), q.asOf(), q.feeds());
+            q.done().complete(null);
+        } catch (Exception e) {
+            log.error("Run {} asOf={} failed", q.runId(), q.asOf(), e);
+            q.done().completeExceptionally(e);
+        } finally {
+            lock.lock();
+            try {
+                active.remove(q);
+                if (!shutdown) {
+                    dispatch();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        List<QueuedRun> abandoned;
+        lock.lock();
+        try {
+            shutdown = true;
+            abandoned = new ArrayList<>(queue);
+            queue.clear();
+            if (!active.isEmpty()) {
+                log.warn("Shutting down with runs still in progress (left STARTED in job_run): {}",
+                        active.stream().map(QueuedRun::runId).toList());
+            }
+        } finally {
+            lock.unlock();
+        }
+        executor.shutdown();
+        for (QueuedRun q : abandoned) {
+            runs.abandon(q.runId(), "Not started: application shut down while the run was queued");
+            q.done().completeExceptionally(new CancellationException("Run " + q.runId() + " was not started"));
+        }
+    }
+
+    /**
+     * @param runId      the queued run, or the waiting run the request was merged into
+     * @param merged     whether the request was merged into an already waiting run
+     * @param completion completes when the run has finished (exceptionally when it failed or was abandoned)
+     */
+    public record Submission(UUID runId, boolean merged, CompletableFuture<Void> completion) {
+    }
+
+    private record QueuedRun(UUID runId, LocalDate asOf, Set<FeedName> feeds, long queuedAtNanos,
+                             CompletableFuture<Void> done) {
+    }
+}
@@ -1,10 +1,13 @@
 package com.github.dimitryivaniuta.loansanalytics.ingest;
 
+import com.github.dimitryivaniuta.loansanalytics.config.DataSourceConfig;
 import com.github.dimitryivaniuta.loansanalytics.ingest.feed.FeedName;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.Instant;
 import java.time.LocalDate;
@@ -14,25 +17,59 @@ import java.util.UUID;
 @RequiredArgsConstructor
 public class JobRunAuditService {
     private final JobRunRepository repo;
+    private final JobRunCache cache;
 
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Transactional(transactionManager = DataSourceConfig.METADATA_TX, propagation = Propagation.REQUIRES_NEW)
     public void startRun(UUID id, LocalDate asOf, Instant startedAt) {
         repo.startRun(id, asOf, startedAt);
+        afterCommit(() -> cache.evictRun(id));
     }
 
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Transactional(transactionManager = DataSourceConfig.METADATA_TX, propagation = Propagation.REQUIRES_NEW)
+    public void queueRun(UUID id, LocalDate asOf, Instant queuedAt) {
+        repo.queueRun(id, asOf, queuedAt);
+        afterCommit(() -> cache.evictRun(id));
+    }
+
+    @Transactional(transactionManager = DataSourceConfig.METADATA_TX, propagation = Propagation.REQUIRES_NEW)
+    public void markStarted(UUID id, Instant startedAt) {
+        repo.markStarted(id, startedAt);
+        afterCommit(() -> cache.evictRun(id));
+    }
+
+    @Transactional(transactionManager = DataSourceConfig.METADATA_TX, propagation = Propagation.REQUIRES_NEW)
     public void finishRun(UUID id, Instant finishedAt, String status, String error) {
         repo.finishRun(id, finishedAt, status, error);
+        afterCommit(() -> cache.evictFinishedRun(id));
     }
 
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
-    public void startFeed(UUID runId, FeedName feed, Instant startedAt, String file) {
-        repo.startFeed(runId, feed, startedAt, file);
+    @Transactional(transactionManager = DataSourceConfig.METADATA_TX, propagation = Propagation.REQUIRES_NEW)
+    public void startFeed(UUID runId, FeedName feed, LocalDate asOf, LocalDate baseline, Instant startedAt, String file) {
+        repo.startFeed(runId, feed, asOf, baseline, startedAt, file);
+        afterCommit(() -> cache.evictRunFeeds(runId));
     }
 
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Transactional(transactionManager = DataSourceConfig.METADATA_TX, propagation = Propagation.REQUIRES_NEW)
     public void finishFeed(UUID runId, FeedName feed, Instant finishedAt, String status,
-                           Long staged, Long snap, Integer delta, String error) {
-        repo.finishFeed(runId, feed, finishedAt, status, staged, snap, delta, error);
+                           Long staged, Long snap, Integer delta, JobRunRepository.FeedTimings timings, String error) {
+        repo.finishFeed(runId, feed, finishedAt, status, staged, snap, delta, timings, error);
+        afterCommit(() -> cache.evictRunFeeds(runId));
+    }
+
+    /**
+     * Evicts cached reads only once the write is visible to other connections, so a concurrent cache miss
+     * cannot reload the old row.
+     */
+    private static void afterCommit(Runnable eviction) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            eviction.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                eviction.run();
+            }
+        });
     }
 }
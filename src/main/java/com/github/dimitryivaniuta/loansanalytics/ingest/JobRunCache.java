@@ -0,0 +1,95 @@
+package com.github.dimitryivaniuta.loansanalytics.ingest;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.dimitryivaniuta.loansanalytics.LoansIngestionProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bounded in-memory cache in front of the {@link JobRunRepository} reads that dashboards poll and every export
+ * repeats: the latest successful run of a day, run listings, single runs and their feed lists.
+ *
+ * <p>Entries are evicted by {@link JobRunAuditService} once the audit write that changes them has committed
+ * (run lists and the run on every run status change, the run's feeds on every feed change, the latest-run
+ * lookups when a run finishes); {@code loans.ingestion.cache.ttl} bounds what another pod's writes can leave
+ * stale. Caches are named {@code job-run.*} in the {@code cache.gets|puts|evictions|size} meters.</p>
+ */
+@Component
+public class JobRunCache {
+
+    private final JobRunRepository repo;
+    private final Cache<LocalDate, Optional<UUID>> latestSuccessfulRuns;
+    private final Cache<RunListKey, List<Map<String, Object>>> runLists;
+    private final Cache<UUID, Optional<Map<String, Object>>> runs;
+    private final Cache<UUID, List<Map<String, Object>>> runFeeds;
+
+    public JobRunCache(JobRunRepository repo, LoansIngestionProperties props, MeterRegistry registry) {
+        this.repo = repo;
+        var config = props.cache();
+        this.latestSuccessfulRuns = build("job-run.latest-successful", config, registry);
+        this.runLists = build("job-run.list", config, registry);
+        this.runs = build("job-run.run", config, registry);
+        this.runFeeds = build("job-run.feeds", config, registry);
+    }
+
+    private static <K, V> Cache<K, V> build(String name, LoansIngestionProperties.MetadataCache config,
+                                            MeterRegistry registry) {
+        Cache<K, V> cache = Caffeine.newBuilder()
+                .maximumSize(config.maxSize())
+                .expireAfterWrite(config.ttl())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, cache, name);
+        return cache;
+    }
+
+    @Nullable
+    public UUID findLatestSuccessfulRunId(LocalDate asOf) {
+        return latestSuccessfulRuns.get(asOf, d -> Optional.ofNullable(repo.findLatestSuccessfulRunId(d))).orElse(null);
+    }
+
+    public List<Map<String, Object>> listRuns(@Nullable LocalDate from, @Nullable LocalDate to, int limit) {
+        return runLists.get(new RunListKey(from, to, limit), k -> repo.listRuns(k.from(), k.to(), k.limit()));
+    }
+
+    @Nullable
+    public Map<String, Object> getRun(UUID id) {
+        return runs.get(id, k -> Optional.ofNullable(repo.getRun(k))).orElse(null);
+    }
+
+    public List<Map<String, Object>> listRunFeeds(UUID runId) {
+        return runFeeds.get(runId, repo::listRunFeeds);
+    }
+
+    /**
+     * A run was queued, started or changed status.
+     */
+    void evictRun(UUID runId) {
+        runs.invalidate(runId);
+        runLists.invalidateAll();
+    }
+
+    /**
+     * A run finished: besides the run itself, its feeds and which run is the latest successful one may change.
+     */
+    void evictFinishedRun(UUID runId) {
+        evictRun(runId);
+        runFeeds.invalidate(runId);
+        latestSuccessfulRuns.invalidateAll();
+    }
+
+    void evictRunFeeds(UUID runId) {
+        runFeeds.invalidate(runId);
+    }
+
+    private record RunListKey(@Nullable LocalDate from, @Nullable LocalDate to, int limit) {
+    }
+}
@@ -1,5 +1,6 @@
 package com.github.dimitryivaniuta.loansanalytics.ingest;
 
+import com.github.dimitryivaniuta.loansanalytics.config.DataSourceConfig;
 import com.github.dimitryivaniuta.loansanalytics.ingest.feed.FeedName;
 import java.time.Instant;
 import java.time.LocalDate;
@@ -8,18 +9,24 @@ import java.time.ZoneOffset;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
-import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Repository;
 
+/**
+ * job_run / job_run_feed audit rows, on the {@code metadata} connection pool (see {@link DataSourceConfig}).
+ */
 @Repository
-@RequiredArgsConstructor
 public class JobRunRepository {
 
     private final NamedParameterJdbcTemplate jdbc;
 
+    public JobRunRepository(@Qualifier(DataSourceConfig.METADATA_JDBC) NamedParameterJdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
     private static OffsetDateTime utc(Instant i) {
         return i == null ? null : OffsetDateTime.ofInstant(i, ZoneOffset.UTC);
     }
@@ -36,6 +43,32 @@ public class JobRunRepository {
         );
     }
 
+    /**
+     * Records a run waiting in the scheduler queue; {@code started_at} holds the queue time until
+     * {@link #markStarted} sets the real start.
+     */
+    public void queueRun(UUID id, LocalDate asOf, Instant queuedAt) {
+        jdbc.update(
+                "INSERT INTO job_run (id, as_of_date, queued_at, started_at, status) " +
+                        "VALUES (:id, :asOf, :queuedAt, :queuedAt, :status)",
+                new MapSqlParameterSource()
+                        .addValue("id", id)
+                        .addValue("asOf", asOf)
+                        .addValue("queuedAt", utc(queuedAt))
+                        .addValue("status", "QUEUED")
+        );
+    }
+
+    public void markStarted(UUID id, Instant startedAt) {
+        jdbc.update(
+                "UPDATE job_run SET started_at=:startedAt, status=:status WHERE id=:id",
+                new MapSqlParameterSource()
+                        .addValue("id", id)
+                        .addValue("startedAt", utc(startedAt))
+                        .addValue("status", "STARTED")
+        );
+    }
+
     public void finishRun(UUID id, Instant finishedAt, String status, @Nullable String errorMessage) {
         jdbc.update(
                 "UPDATE job_run SET finished_at=:finishedAt, status=:status, error_message=:msg WHERE id=:id",
@@ -47,20 +80,25 @@ public class JobRunRepository {
         );
     }
 
-    public void startFeed(UUID runId, FeedName feed, Instant startedAt, @Nullable String sourceFile) {
+    public void startFeed(UUID runId, FeedName feed, LocalDate asOf, LocalDate baseline, Instant startedAt,
+                          @Nullable String sourceFile) {
         jdbc.update(
                 """
-                INSERT INTO job_run_feed (job_run_id, feed_name, source_file, started_at, status)
-                VALUES (:runId, :feed, :file, :startedAt, :status)
+                INSERT INTO job_run_feed (job_run_id, feed_name, as_of_date, baseline_date, source_file, started_at, status)
+                VALUES (:runId, :feed, :asOf, :baseline, :file, :startedAt, :status)
                 ON CONFLICT (job_run_id, feed_name)
                 DO UPDATE SET
-                  source_file = EXCLUDED.source_file,
-                  started_at  = EXCLUDED.started_at,
-                  status      = EXCLUDED.status
+                  as_of_date    = EXCLUDED.as_of_date,
+                  baseline_date = EXCLUDED.baseline_date,
+                  source_file   = EXCLUDED.source_file,
+                  started_at    = EXCLUDED.started_at,
+                  status        = EXCLUDED.status
                 """,
                 new MapSqlParameterSource()
                         .addValue("runId", runId)
                         .addValue("feed", feed.name())
+                        .addValue("asOf", asOf)
+                        .addValue("baseline", baseline)
                         .addValue("file", sourceFile)
                         .addValue("startedAt", utc(startedAt))
                         .addValue("status", "STARTED")
@@ -75,20 +113,26 @@ public class JobRunRepository {
             @Nullable Long stagedRows,
             @Nullable Long snapshotRows,
             @Nullable Integer deltaRows,
+            @Nullable FeedTimings timings,
             @Nullable String errorMessage
     ) {
         jdbc.update(
-                "UPDATE job_run_feed SET finished_at=:finishedAt, status=:status, staged_rows=:staged, " +
-                        "snapshot_rows=:snap, delta_rows=:delta, error_message=:msg " +
+                "UPDATE job_run_feed SET finished_at=:finishedAt, status=:status, " +
+                        "staged_rows=COALESCE(:staged, staged_rows), snapshot_rows=COALESCE(:snap, snapshot_rows), " +
+                        "delta_rows=COALESCE(:delta, delta_rows), copy_ms=:copyMs, upsert_ms=:upsertMs, " +
+                        "delta_ms=:deltaMs, error_message=:msg " +
                         "WHERE job_run_id=:runId AND feed_name=:feed",
                 new MapSqlParameterSource()
                         .addValue("runId", runId)
                         .addValue("feed", feed.name())
                         .addValue("finishedAt", utc(finishedAt))
                         .addValue("status", status)
-                        .addValue("staged", stagedRows)
-                        .addValue("snap", snapshotRows)
-                        .addValue("delta", deltaRows)
+                        .addValue("staged", stagedRows, java.sql.Types.BIGINT)
+                        .addValue("snap", snapshotRows, java.sql.Types.BIGINT)
+                        .addValue("delta", deltaRows, java.sql.Types.BIGINT)
+                        .addValue("copyMs", timings == null ? null : timings.copyMs(), java.sql.Types.BIGINT)
+                        .addValue("upsertMs", timings == null ? null : timings.upsertMs(), java.sql.Types.BIGINT)
+                        .addValue("deltaMs", timings == null ? null : timings.deltaMs(), java.sql.Types.BIGINT)
                         .addValue("msg", errorMessage)
         );
     }
@@ -103,9 +147,25 @@ public class JobRunRepository {
         return ids.isEmpty() ? null : ids.get(0);
     }
 
+    /**
+     * The latest day before {@code before} for which {@code feed} was loaded successfully (index
+     * {@code ix_job_run_feed_success_asof}), or null.
+     */
+    @Nullable
+    public LocalDate findLatestSuccessfulFeedDate(FeedName feed, LocalDate before) {
+        return jdbc.queryForObject(
+                "SELECT max(as_of_date) FROM job_run_feed " +
+                        "WHERE feed_name=:feed AND status='SUCCESS' AND as_of_date < :before",
+                new MapSqlParameterSource()
+                        .addValue("feed", feed.name())
+                        .addValue("before", before),
+                LocalDate.class
+        );
+    }
+
     public List<Map<String, Object>> listRuns(@Nullable LocalDate from, @Nullable LocalDate to, int limit) {
         return jdbc.queryForList(
-                "SELECT id, as_of_date, status, started_at, finished_at, error_message " +
+                "SELECT id, as_of_date, status, queued_at, started_at, finished_at, error_message " +
                         "FROM job_run " +
                         "WHERE (:from IS NULL OR as_of_date >= CAST(:from AS DATE)) " +
                         " AND (:to IS NULL OR as_of_date <= CAST(:to AS DATE)) " +
@@ -120,7 +180,7 @@ public class JobRunRepository {
     @Nullable
     public Map<String, Object> getRun(UUID id) {
         var list = jdbc.queryForList(
-                "SELECT id, as_of_date, status, started_at, finished_at, error_message FROM job_run WHERE id=:id",
+                "SELECT id, as_of_date, status, queued_at, started_at, finished_at, error_message FROM job_run WHERE id=:id",
                 new MapSqlParameterSource("id", id)
         );
         return list.isEmpty() ? null : list.get(0);
@@ -128,9 +188,16 @@ public class JobRunRepository {
 
     public List<Map<String, Object>> listRunFeeds(UUID runId) {
         return jdbc.queryForList(
-                "SELECT feed_name, status, source_file, staged_rows, snapshot_rows, delta_rows, started_at, finished_at, error_message " +
+                "SELECT feed_name, status, baseline_date, source_file, staged_rows, snapshot_rows, delta_rows, started_at, finished_at, " +
+                        "copy_ms, upsert_ms, delta_ms, " +
+                        "(EXTRACT(EPOCH FROM (finished_at - started_at)) * 1000)::bigint AS duration_ms, error_message " +
                         "FROM job_run_feed WHERE job_run_id=:runId ORDER BY feed_name",
                 new MapSqlParameterSource("runId", runId)
         );
     }
+
+    /**
+     * Wall-clock time spent in each phase of a feed, in milliseconds.
+     */
+    public record FeedTimings(long copyMs, long upsertMs, long deltaMs) {}
 }
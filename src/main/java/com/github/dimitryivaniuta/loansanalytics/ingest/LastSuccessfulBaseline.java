@@ -0,0 +1,27 @@
+package com.github.dimitryivaniuta.loansanalytics.ingest;
+
+import com.github.dimitryivaniuta.loansanalytics.ingest.feed.FeedName;
+import java.time.LocalDate;
+
+/**
+ * Baseline = the latest day before {@code asOf} for which the feed was loaded successfully, read from
+ * {@code job_run_feed} through its partial index on successful loads
+ * ({@code loans.ingestion.baseline.mode=LAST_SUCCESSFUL}). Days without a file and failed loads are skipped
+ * whatever the calendar; a feed without such a load falls back to {@code fallback}.
+ */
+public class LastSuccessfulBaseline implements BaselineStrategy {
+
+    private final JobRunRepository runs;
+    private final BaselineStrategy fallback;
+
+    public LastSuccessfulBaseline(JobRunRepository runs, BaselineStrategy fallback) {
+        this.runs = runs;
+        this.fallback = fallback;
+    }
+
+    @Override
+    public LocalDate baselineFor(FeedName feed, LocalDate asOf) {
+        LocalDate last = runs.findLatestSuccessfulFeedDate(feed, asOf);
+        return last != null ? last : fallback.baselineFor(feed, asOf);
+    }
+}
@@ -0,0 +1,98 @@
+package com.github.dimitryivaniuta.loansanalytics.ingest;
+
+import com.zaxxer.hikari.HikariDataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.sql.DataSource;
+
+/**
+ * Small fan-out helper for the ingest pipeline.
+ *
+ * <p>Tasks run on a bounded pool of virtual threads; the caller blocks until every task has finished,
+ * so a failing task never leaves siblings running in the background. The first failure is rethrown
+ * (later ones are attached as suppressed exceptions).</p>
+ */
+public final class ParallelTasks {
+
+    private static final int RESERVED_CONNECTIONS = 2;
+
+    private ParallelTasks() {
+    }
+
+    public static <T> List<T> invokeAll(String threadPrefix, int parallelism, List<? extends Callable<T>> tasks) {
+        if (parallelism <= 1 || tasks.size() <= 1) {
+            List<T> out = new ArrayList<>(tasks.size());
+            for (Callable<T> task : tasks) {
+                out.add(callUnchecked(task));
+            }
+            return out;
+        }
+
+        int threads = Math.min(parallelism, tasks.size());
+        try (ExecutorService pool = Executors.newFixedThreadPool(threads, Thread.ofVirtual().name(threadPrefix, 0).factory())) {
+            List<Future<T>> futures = new ArrayList<>(tasks.size());
+            for (Callable<T> task : tasks) {
+                futures.add(pool.submit(task));
+            }
+
+            List<T> out = new ArrayList<>(tasks.size());
+            RuntimeException failure = null;
+            for (Future<T> f : futures) {
+                try {
+                    out.add(f.get());
+                } catch (ExecutionException e) {
+                    RuntimeException cause = unchecked(e.getCause());
+                    if (failure == null) {
+                        failure = cause;
+                    } else {
+                        failure.addSuppressed(cause);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for " + threadPrefix + " tasks", e);
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            return out;
+        }
+    }
+
+    /**
+     * Caps a requested parallelism so that {@code connectionsPerTask * parallelism} (plus a small reserve for
+     * statements outside the fan-out, e.g. retention) fits into the Hikari pool. Non-Hikari data sources are not
+     * capped.
+     */
+    public static int capToPool(DataSource dataSource, int requested, int connectionsPerTask) {
+        int capped = Math.max(1, requested);
+        if (dataSource instanceof HikariDataSource hikari) {
+            int usable = hikari.getMaximumPoolSize() - RESERVED_CONNECTIONS;
+            capped = Math.min(capped, Math.max(1, usable / Math.max(1, connectionsPerTask)));
+        }
+        return capped;
+    }
+
+    private static <T> T callUnchecked(Callable<T> task) {
+        try {
+            return task.call();
+        } catch (Exception e) {
+            throw unchecked(e);
+        }
+    }
+
+    private static RuntimeException unchecked(Throwable t) {
+        if (t instanceof RuntimeException re) {
+            return re;
+        }
+        if (t instanceof Error err) {
+            throw err;
+        }
+        return new IllegalStateException(t.getMessage(), t);
+    }
+}
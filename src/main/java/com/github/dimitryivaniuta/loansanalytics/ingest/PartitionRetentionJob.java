@@ -0,0 +1,95 @@
+package com.github.dimitryivaniuta.loansanalytics.ingest;
+
+import com.github.dimitryivaniuta.loansanalytics.LoansIngestionProperties;
+import com.github.dimitryivaniuta.loansanalytics.ingest.feed.FeedDefinition;
+import com.github.dimitryivaniuta.loansanalytics.ingest.feed.FeedRegistry;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Retires old day partitions of delta_event and the snapshot tables.
+ *
+ * <p>Dropping (or detaching) a whole partition is a catalog operation: no row-by-row DELETE, no bloat,
+ * no vacuum debt. Each partition is retired in its own statement, so a failure on one table does not
+ * hold back the others.</p>
+ *
+ * <p>Also drops per-run staging tables that failed runs left behind and, with VERSIONED snapshot storage, the row
+ * versions that closed before the snapshot cutoff (a DELETE on the {@code valid_to} index).</p>
+ *
+ * <p>Every pod schedules the job; the pass runs under a cluster-wide advisory lock
+ * ({@link IngestLockRepository#tryLockRetention()}) and pods that do not get it skip the day.</p>
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PartitionRetentionJob {
+
+    private final LoansIngestionProperties props;
+    private final FeedRegistry registry;
+    private final SnapshotRepository snapshotRepository;
+    private final DeltaRepository deltaRepository;
+    private final SnapshotVersionRepository versionRepository;
+    private final IngestLockRepository locks;
+
+    @Scheduled(cron = "${loans.ingestion.retention.cron:0 30 3 * * *}")
+    public void run() {
+        if (!props.retention().enabled()) {
+            return;
+        }
+        var lock = locks.tryLockRetention();
+        if (lock.isEmpty()) {
+            log.info("Retention: skipped, another instance holds the retention lock");
+            return;
+        }
+        try (var held = lock.get()) {
+            retire(LocalDate.now());
+        }
+    }
+
+    public int retire(LocalDate today) {
+        var retention = props.retention();
+        boolean detachOnly = retention.detachOnly();
+
+        LocalDate deltaCutoff = today.minusDays(retention.deltaDays());
+        int retired = deltaRepository.retirePartitionsBefore(deltaCutoff, detachOnly);
+        log.info("Retention: {} delta_event partitions before {} {}", retired, deltaCutoff, detachOnly ? "detached" : "dropped");
+
+        LocalDate snapCutoff = today.minusDays(retention.snapshotDays());
+        for (FeedDefinition feed : registry.all()) {
+            try {
+                int n = snapshotRepository.retireSnapshotPartitionsBefore(feed, snapCutoff, detachOnly);
+                retired += n;
+                if (n > 0) {
+                    log.info("Retention: {} {} partitions before {} {}", n, feed.snapshotTable(), snapCutoff, detachOnly ? "detached" : "dropped");
+                }
+            } catch (RuntimeException e) {
+                log.warn("Retention failed for {}: {}", feed.snapshotTable(), e.getMessage());
+            }
+            if (props.snapshotStorage() == LoansIngestionProperties.SnapshotStorage.VERSIONED) {
+                try {
+                    int n = versionRepository.deleteClosedBefore(feed, snapCutoff);
+                    if (n > 0) {
+                        log.info("Retention: {} {} versions closed by {} deleted", n, feed.versionTable(), snapCutoff);
+                    }
+                } catch (RuntimeException e) {
+                    log.warn("Retention failed for {}: {}", feed.versionTable(), e.getMessage());
+                }
+            }
+        }
+
+        try {
+            int staging = snapshotRepository.dropStaleRunStaging(
+                    today.minusDays(retention.stagingDays()).atStartOfDay(ZoneId.systemDefault()).toInstant());
+            if (staging > 0) {
+                log.info("Retention: {} stale run staging tables dropped", staging);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Retention failed for run staging tables: {}", e.getMessage());
+        }
+        return retired;
+    }
+}
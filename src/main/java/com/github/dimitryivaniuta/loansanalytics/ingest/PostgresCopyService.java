@@ -1,16 +1,20 @@
 package com.github.dimitryivaniuta.loansanalytics.ingest;
 
+import com.github.dimitryivaniuta.loansanalytics.LoansIngestionProperties;
 import com.github.dimitryivaniuta.loansanalytics.ingest.feed.FeedDefinition;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.Callable;
 import javax.sql.DataSource;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -23,7 +27,14 @@ import org.springframework.stereotype.Service;
  *
  * <p>We parse the CSV header to build the COPY column list in the same order as the file.
  * The header is skipped by COPY (HEADER true). We still prefix our own metadata columns
- * (job_run_id, as_of_date, source_file) to each data row using a streaming wrapper.</p>
+ * (job_run_id, as_of_date, source_file) to each data row using a streaming wrapper. With
+ * {@code loans.ingestion.row-hash=JAVA} the wrapper also computes each row's {@link RowHasher} hash on the fly
+ * and sends it as {@code row_hash128}. With {@code loans.ingestion.validation.enabled} it checks each row
+ * ({@link CsvRecordValidator}) and routes bad rows to ingest_reject instead of COPY.</p>
+ *
+ * <p>Files larger than {@code loans.ingestion.copy.chunk-size} are split on record boundaries
+ * (see {@link CsvRecordBoundaries}) and loaded by several concurrent COPY streams, each on its own
+ * connection. The returned row count is the sum of the per-chunk counts.</p>
  */
 @Service
 @RequiredArgsConstructor
@@ -31,35 +42,108 @@ import org.springframework.stereotype.Service;
 public class PostgresCopyService {
 
     private final DataSource dataSource;
+    private final LoansIngestionProperties props;
+    private final BulkConnectionSlots bulkSlots;
+    private final ColumnTypeCatalog columnTypes;
+    private final IngestRejectRepository rejectRepository;
 
+    /**
+     * Loads {@code csvFile} into the run's staging table (see {@link SnapshotRepository#createRunStaging}).
+     */
     public long copyIntoStaging(UUID runId, LocalDate asOf, FeedDefinition feed, Path csvFile) {
         String sourceFile = csvFile.getFileName().toString();
+        String stagingTable = feed.runStagingTable(runId);
         try {
             List<String> headers = readHeader(csvFile);
             List<String> mappedCols = feed.mapHeadersToDbColumns(headers);
 
-            String copySql = buildCopySql(feed.stagingTable(), mappedCols);
-            log.info("COPY {} -> {} ({} columns)", sourceFile, feed.stagingTable(), mappedCols.size());
+            boolean javaHash = props.rowHash() == LoansIngestionProperties.RowHash.JAVA;
+            byte[] rowPrefix = PrefixingCsvInputStream.rowPrefix(runId, asOf, sourceFile);
+
+            var validation = props.validation();
+            CsvRecordValidator validator = validation.enabled()
+                    ? new CsvRecordValidator(feed, columnTypes.dataColumnTypes(feed), mappedCols)
+                    : null;
+            RejectCollector rejects = validation.enabled()
+                    ? new RejectCollector(rejectRepository, runId, feed.name(), asOf, sourceFile, validation.maxRejectsFor(feed.name()))
+                    : null;
+
+            List<CsvRecordBoundaries.Range> chunks = planChunks(csvFile);
+            if (chunks.size() <= 1) {
+                String copySql = buildCopySql(stagingTable, mappedCols, true, javaHash);
+                log.info("COPY {} -> {} ({} columns)", sourceFile, stagingTable, mappedCols.size());
+                long rows = copy(copySql, () -> new PrefixingCsvInputStream(csvFile, 0, Long.MAX_VALUE, true, rowPrefix,
+                        javaHash ? new RowHasher(feed.dataColumns(), mappedCols) : null, validator, rejects));
+                return finishRejects(rejects, sourceFile, rows);
+            }
+
+            String copySql = buildCopySql(stagingTable, mappedCols, false, javaHash);
+            log.info("COPY {} -> {} ({} columns, {} chunks, parallelism={})",
+                    sourceFile, stagingTable, mappedCols.size(), chunks.size(), props.copy().parallelism());
+
+            List<Callable<Long>> tasks = new ArrayList<>(chunks.size());
+            for (CsvRecordBoundaries.Range r : chunks) {
+                tasks.add(() -> {
+                    long rows = copy(copySql, () -> new PrefixingCsvInputStream(csvFile, r.start(), r.end(), false, rowPrefix,
+                            javaHash ? new RowHasher(feed.dataColumns(), mappedCols) : null, validator, rejects));
+                    log.debug("COPY {} chunk [{}, {}) rows={}", sourceFile, r.start(), r.end(), rows);
+                    return rows;
+                });
+            }
+
+            long total = 0;
+            for (long rows : ParallelTasks.invokeAll("copy-" + feed.name() + "-", props.copy().parallelism(), tasks)) {
+                total += rows;
+            }
+            return finishRejects(rejects, sourceFile, total);
+        } catch (Exception e) {
+            throw new IllegalStateException("COPY into staging failed for feed " + feed.name() + " file=" + csvFile, e);
+        }
+    }
+
+    private long finishRejects(RejectCollector rejects, String sourceFile, long copied) {
+        if (rejects != null) {
+            rejects.flush();
+            if (rejects.count() > 0) {
+                log.warn("COPY {}: {} rows rejected into ingest_reject, {} copied", sourceFile, rejects.count(), copied);
+            }
+        }
+        return copied;
+    }
+
+    private List<CsvRecordBoundaries.Range> planChunks(Path csvFile) throws IOException {
+        long chunkBytes = props.copy().chunkSize().toBytes();
+        if (props.copy().parallelism() <= 1 || Files.size(csvFile) <= chunkBytes) {
+            return List.of();
+        }
+        try (FileChannel ch = FileChannel.open(csvFile, StandardOpenOption.READ)) {
+            return CsvRecordBoundaries.split(ch, CsvRecordBoundaries.headerEnd(ch), chunkBytes);
+        }
+    }
 
+    private long copy(String copySql, StreamOpener opener) throws Exception {
+        return bulkSlots.call(() -> {
             try (var conn = dataSource.getConnection()) {
                 PGConnection pg = conn.unwrap(PGConnection.class);
                 CopyManager cm = pg.getCopyAPI();
 
-                try (InputStream in = Files.newInputStream(csvFile);
-                     InputStream prefixed = new PrefixingCsvInputStream(in, runId, asOf, sourceFile)) {
+                try (InputStream prefixed = opener.open()) {
                     return cm.copyIn(copySql, prefixed);
                 }
             }
-        } catch (Exception e) {
-            throw new IllegalStateException("COPY into staging failed for feed " + feed.name() + " file=" + csvFile, e);
-        }
+        });
+    }
+
+    @FunctionalInterface
+    private interface StreamOpener {
+        InputStream open() throws IOException;
     }
 
-    private static String buildCopySql(String stagingTable, List<String> mappedCols) {
+    private static String buildCopySql(String stagingTable, List<String> mappedCols, boolean withHeader, boolean withRowHash) {
         String cols = String.join(",", mappedCols);
-        // We always prefix run metadata columns.
-        return "COPY " + stagingTable + " (job_run_id,as_of_date,source_file," + cols + ") " +
-                "FROM STDIN WITH (FORMAT csv, HEADER true, QUOTE '\"', ESCAPE '\"')";
+        // We always prefix run metadata columns (plus the Java-computed row hash, if enabled).
+        return "COPY " + stagingTable + " (job_run_id,as_of_date,source_file," + (withRowHash ? "row_hash128," : "") + cols + ") " +
+                "FROM STDIN WITH (FORMAT csv, HEADER " + withHeader + ", QUOTE '\"', ESCAPE '\"')";
     }
 
     private static List<String> readHeader(Path csvFile) throws IOException {
@@ -1,73 +1,259 @@
 package com.github.dimitryivaniuta.loansanalytics.ingest;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDate;
+import java.util.Arrays;
 import java.util.UUID;
 
 /**
- * Streams a CSV file while prefixing each line with run metadata columns:
+ * Streams a CSV file (or a byte range of it) while prefixing each record with run metadata columns:
  * job_run_id, as_of_date, source_file.
  *
  * <p>This keeps the ingest path COPY-friendly (no full file rewrite) and avoids row-by-row JDBC inserts.
+ *
+ * <p>The stream works on raw bytes: it reads the file through a {@link FileChannel} into a reusable buffer,
+ * scans for record terminators without decoding, and copies whole runs of bytes per {@link #read(byte[], int, int)}
+ * call. A record ends at a LF outside a quoted field, so quoted values with embedded newlines stay in one record.
+ * The row prefix is encoded once per file. Empty lines are dropped (COPY would reject them anyway).
+ *
+ * <p>With a {@link RowHasher} or a {@link CsvRecordValidator} each data record is first assembled in full and
+ * tokenized once. A record the validator rejects goes to the {@link RejectSink} and is not emitted; with a hasher,
+ * the record is emitted with one more prefix column, {@code row_hash128}, as a bytea hex literal ({@code \x...}).
  */
 final class PrefixingCsvInputStream extends InputStream {
 
-    private final BufferedReader reader;
-    private final UUID runId;
-    private final LocalDate asOf;
-    private final String sourceFile;
+    private static final byte[] HEADER_PREFIX = "job_run_id,as_of_date,source_file,".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] HASHED_HEADER_PREFIX = "job_run_id,as_of_date,source_file,row_hash128,".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final FileChannel channel;
+    private final long end;
+    private final byte[] rowPrefix;
+    private final RowHasher hasher;
+    private final CsvRecordValidator validator;
+    private final RejectSink rejects;
+    private final CsvRecordTokenizer tokenizer;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).flip();
+    private final byte[] single = new byte[1];
 
-    private byte[] buffer = new byte[0];
-    private int pos = 0;
-    private boolean firstLine = true;
+    private long position;
+    private boolean headerPending;
+    private boolean atRecordStart = true;
+    private boolean inQuotes = false;
+    private byte[] pending;
+    private int pendingPos;
+    private int pendingLen;
+    private byte[] record;
+    private byte[] assembled;
     private boolean closed = false;
 
-    PrefixingCsvInputStream(InputStream original, UUID runId, LocalDate asOf, String sourceFile) {
-        this.reader = new BufferedReader(new InputStreamReader(original, StandardCharsets.UTF_8));
-        this.runId = runId;
-        this.asOf = asOf;
-        this.sourceFile = sourceFile;
+    PrefixingCsvInputStream(Path file, UUID runId, LocalDate asOf, String sourceFile) throws IOException {
+        this(file, 0, Long.MAX_VALUE, true, rowPrefix(runId, asOf, sourceFile));
+    }
+
+    PrefixingCsvInputStream(Path file, long start, long end, boolean withHeader, byte[] rowPrefix) throws IOException {
+        this(file, start, end, withHeader, rowPrefix, null);
+    }
+
+    PrefixingCsvInputStream(Path file, long start, long end, boolean withHeader, byte[] rowPrefix, RowHasher hasher)
+            throws IOException {
+        this(file, start, end, withHeader, rowPrefix, hasher, null, null);
+    }
+
+    /**
+     * @param start      first byte to stream (must be a record boundary)
+     * @param end        end of the range, exclusive (clamped to the file size)
+     * @param withHeader whether the first record is the CSV header (false for mid-file chunks)
+     * @param rowPrefix  pre-encoded prefix, see {@link #rowPrefix(UUID, LocalDate, String)}
+     * @param hasher     when not null, a {@code row_hash128} column is added after the prefix
+     * @param validator  when not null, records it rejects are passed to {@code rejects} instead of being emitted
+     * @param rejects    receives rejected records; required with a validator
+     */
+    PrefixingCsvInputStream(Path file, long start, long end, boolean withHeader, byte[] rowPrefix, RowHasher hasher,
+                            CsvRecordValidator validator, RejectSink rejects) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.position = start;
+        this.end = Math.min(end, channel.size());
+        this.headerPending = withHeader;
+        this.rowPrefix = rowPrefix;
+        this.hasher = hasher;
+        this.validator = validator;
+        this.rejects = rejects;
+        this.tokenizer = hasher != null || validator != null ? new CsvRecordTokenizer() : null;
+        if (tokenizer != null) {
+            this.record = new byte[1024];
+            this.assembled = new byte[1024];
+        }
+    }
+
+    static byte[] rowPrefix(UUID runId, LocalDate asOf, String sourceFile) {
+        return (runId + "," + asOf + "," + csvQuote(sourceFile) + ",").getBytes(StandardCharsets.UTF_8);
     }
 
     @Override
     public int read() throws IOException {
+        int n = read(single, 0, 1);
+        return n < 0 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
         if (closed) {
             return -1;
         }
+        if (len == 0) {
+            return 0;
+        }
+
+        int written = 0;
+        while (written < len) {
+            if (pendingPos < pendingLen) {
+                int n = Math.min(len - written, pendingLen - pendingPos);
+                System.arraycopy(pending, pendingPos, b, off + written, n);
+                pendingPos += n;
+                written += n;
+                continue;
+            }
+
+            if (!buffer.hasRemaining() && !fillBuffer()) {
+                break;
+            }
+
+            byte[] a = buffer.array();
+            int p = buffer.position();
 
-        if (pos >= buffer.length) {
-            if (!fillBuffer()) {
-                closed = true;
-                return -1;
+            if (atRecordStart) {
+                if (a[p] == '\n' || a[p] == '\r') {
+                    // empty line
+                    buffer.position(p + 1);
+                    continue;
+                }
+                if (tokenizer != null && !headerPending) {
+                    assembleRecord();
+                    continue;
+                }
+                if (headerPending) {
+                    setPending(hasher != null ? HASHED_HEADER_PREFIX : HEADER_PREFIX);
+                } else {
+                    setPending(rowPrefix);
+                }
+                headerPending = false;
+                atRecordStart = false;
+                continue;
             }
+
+            // Copy up to (and including) the next record terminator.
+            int stop = p + Math.min(buffer.remaining(), len - written);
+            int i = p;
+            while (i < stop) {
+                byte c = a[i++];
+                if (c == '"') {
+                    inQuotes = !inQuotes;
+                } else if (c == '\n' && !inQuotes) {
+                    atRecordStart = true;
+                    break;
+                }
+            }
+            int n = i - p;
+            System.arraycopy(a, p, b, off + written, n);
+            buffer.position(i);
+            written += n;
         }
-        return buffer[pos++] & 0xFF;
+
+        return written == 0 ? -1 : written;
     }
 
-    private boolean fillBuffer() throws IOException {
-        String line = reader.readLine();
-        if (line == null) {
-            return false;
+    private void setPending(byte[] bytes) {
+        pending = bytes;
+        pendingPos = 0;
+        pendingLen = bytes.length;
+    }
+
+    /**
+     * Reads one whole data record (through its LF, or to the end of the range), validates it and queues
+     * {@code rowPrefix [+ \x<hash> + ","] + record} as pending output, or hands it to the reject sink.
+     */
+    private void assembleRecord() throws IOException {
+        int recLen = 0;
+        boolean complete = false;
+        while (!complete && (buffer.hasRemaining() || fillBuffer())) {
+            byte[] a = buffer.array();
+            int p = buffer.position();
+            int limit = buffer.limit();
+            int i = p;
+            while (i < limit) {
+                byte c = a[i++];
+                if (c == '"') {
+                    inQuotes = !inQuotes;
+                } else if (c == '\n' && !inQuotes) {
+                    complete = true;
+                    break;
+                }
+            }
+            int n = i - p;
+            if (recLen + n > record.length) {
+                record = Arrays.copyOf(record, Math.max(recLen + n, record.length * 2));
+            }
+            System.arraycopy(a, p, record, recLen, n);
+            recLen += n;
+            buffer.position(i);
+        }
+
+        int contentLen = complete ? recLen - 1 : recLen;
+        tokenizer.tokenize(record, 0, contentLen);
+        atRecordStart = true;
+        if (validator != null) {
+            String reason = validator.validate(tokenizer);
+            if (reason != null) {
+                rejects.reject(record, 0, contentLen, reason);
+                return;
+            }
         }
 
-        String prefix = runId + "," + asOf + "," + csvQuote(sourceFile) + ",";
-        String out;
-        if (firstLine) {
-            // Header
-            out = "job_run_id,as_of_date,source_file," + line;
-            firstLine = false;
-        } else {
-            out = prefix + line;
+        byte[] hash = hasher == null ? null : hasher.hash(tokenizer);
+        int size = rowPrefix.length + (hash == null ? 0 : 2 + hash.length * 2 + 1) + recLen;
+        if (size > assembled.length) {
+            assembled = new byte[Math.max(size, assembled.length * 2)];
         }
+        byte[] out = assembled;
+        int o = 0;
+        System.arraycopy(rowPrefix, 0, out, o, rowPrefix.length);
+        o += rowPrefix.length;
+        if (hash != null) {
+            out[o++] = '\\';
+            out[o++] = 'x';
+            for (byte h : hash) {
+                out[o++] = HEX[(h >> 4) & 0xF];
+                out[o++] = HEX[h & 0xF];
+            }
+            out[o++] = ',';
+        }
+        System.arraycopy(record, 0, out, o, recLen);
+        pending = out;
+        pendingPos = 0;
+        pendingLen = size;
+    }
 
-        // COPY expects newline-separated records.
-        out = out + "\n";
-        buffer = out.getBytes(StandardCharsets.UTF_8);
-        pos = 0;
+    private boolean fillBuffer() throws IOException {
+        if (position >= end) {
+            return false;
+        }
+        buffer.clear();
+        buffer.limit((int) Math.min(BUFFER_SIZE, end - position));
+        int n = channel.read(buffer, position);
+        if (n <= 0) {
+            buffer.flip();
+            return false;
+        }
+        position += n;
+        buffer.flip();
         return true;
     }
 
@@ -83,7 +269,7 @@ final class PrefixingCsvInputStream extends InputStream {
 
     @Override
     public void close() throws IOException {
-        reader.close();
+        channel.close();
         closed = true;
     }
 }
@@ -0,0 +1,90 @@
+package com.github.dimitryivaniuta.loansanalytics.ingest;
+
+import com.github.dimitryivaniuta.loansanalytics.ingest.IngestRejectRepository.Reject;
+import com.github.dimitryivaniuta.loansanalytics.ingest.feed.FeedName;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Collects the rejected records of one file load (all its COPY streams) and writes them to ingest_reject
+ * in batches. Once more than {@code maxRejects} records were rejected the load is aborted: the batch so far
+ * is written, then the calling stream fails and with it the COPY.
+ *
+ * <p>Thread-safe. Writes use a pooled connection of their own while the COPY streams hold theirs. Guarded by a
+ * lock rather than {@code synchronized}: the batch insert blocks on JDBC and the streams run on virtual threads,
+ * which a monitor would pin to their carrier.</p>
+ */
+final class RejectCollector implements RejectSink {
+
+    static final int BATCH_SIZE = 500;
+    private static final int MAX_RAW_CHARS = 8192;
+
+    private final IngestRejectRepository repository;
+    private final UUID runId;
+    private final FeedName feed;
+    private final LocalDate asOf;
+    private final String sourceFile;
+    private final long maxRejects;
+    private final List<Reject> batch = new ArrayList<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private long count;
+
+    RejectCollector(IngestRejectRepository repository, UUID runId, FeedName feed, LocalDate asOf, String sourceFile,
+                    long maxRejects) {
+        this.repository = repository;
+        this.runId = runId;
+        this.feed = feed;
+        this.asOf = asOf;
+        this.sourceFile = sourceFile;
+        this.maxRejects = maxRejects;
+    }
+
+    @Override
+    public void reject(byte[] rec, int off, int len, String reason) throws IOException {
+        Reject reject = new Reject(reason, raw(rec, off, len));
+        lock.lock();
+        try {
+            count++;
+            batch.add(reject);
+            if (count > maxRejects) {
+                flush();
+                throw new IOException("Feed " + feed + ": " + count + " rejected rows exceed max-rejects=" + maxRejects
+                        + " (see ingest_reject for run " + runId + ")");
+            }
+            if (batch.size() >= BATCH_SIZE) {
+                flush();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void flush() {
+        lock.lock();
+        try {
+            repository.insertBatch(runId, feed, asOf, sourceFile, batch);
+            batch.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long count() {
+        lock.lock();
+        try {
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static String raw(byte[] rec, int off, int len) {
+        String s = new String(rec, off, len, StandardCharsets.UTF_8).replace("\u0000", "");
+        return s.length() > MAX_RAW_CHARS ? s.substring(0, MAX_RAW_CHARS) : s;
+    }
+}
@@ -0,0 +1,17 @@
+package com.github.dimitryivaniuta.loansanalytics.ingest;
+
+import java.io.IOException;
+
+/**
+ * Receives the CSV records validation rejected, see {@link PrefixingCsvInputStream}.
+ */
+@FunctionalInterface
+interface RejectSink {
+
+    /**
+     * @param rec    buffer holding the raw record, {@code rec[off, off+len)} without its LF; only valid during the call
+     * @param reason why the record was rejected
+     * @throws IOException to abort the stream, e.g. when too many records were rejected
+     */
+    void reject(byte[] rec, int off, int len, String reason) throws IOException;
+}
@@ -0,0 +1,172 @@
+package com.github.dimitryivaniuta.loansanalytics.ingest;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 128-bit row hash computed from the raw CSV bytes of a record while it streams into COPY.
+ *
+ * <p>Canonical encoding: the feed's data columns in {@code FeedDefinition.dataColumns()} order (independent of
+ * the file's column order), each as a 4-byte big-endian length followed by the unquoted field bytes. An unquoted
+ * empty field (NULL for COPY) and a column missing from the file encode as length -1; a quoted empty field
+ * ({@code ""}) as length 0. The hash is MurmurHash3 x64/128 (seed 0), written as h1 then h2, little-endian
+ * (the byte order Guava uses).</p>
+ *
+ * <p>The hash sees field text, not typed values: {@code 100.0} and {@code 100.00} hash differently. The delta
+ * therefore confirms hash mismatches against the typed payload before emitting a U.</p>
+ *
+ * <p>Not thread-safe: one instance per stream.</p>
+ */
+final class RowHasher {
+
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+
+    private final int[] dataToFile;
+    private final CsvRecordTokenizer tokenizer = new CsvRecordTokenizer();
+    private byte[] canonical = new byte[1024];
+
+    /**
+     * @param dataColumns the feed's canonical data columns
+     * @param fileColumns the file's columns (already mapped to DB names), in file order
+     */
+    RowHasher(List<String> dataColumns, List<String> fileColumns) {
+        this.dataToFile = new int[dataColumns.size()];
+        for (int d = 0; d < dataColumns.size(); d++) {
+            dataToFile[d] = fileColumns.indexOf(dataColumns.get(d));
+        }
+    }
+
+    /**
+     * Hashes one CSV record, {@code rec[off, off+len)} without the terminating LF (a trailing CR is ignored).
+     */
+    byte[] hash(byte[] rec, int off, int len) {
+        tokenizer.tokenize(rec, off, len);
+        return hash(tokenizer);
+    }
+
+    /**
+     * Hashes a record already split by {@code fields} (file column order).
+     */
+    byte[] hash(CsvRecordTokenizer fields) {
+        byte[] src = fields.bytes();
+        int size = 0;
+        for (int f : dataToFile) {
+            int n = f >= 0 && f < fields.count() ? fields.length(f) : -1;
+            canonical = ensure(canonical, size + 4 + Math.max(n, 0));
+            canonical[size++] = (byte) (n >>> 24);
+            canonical[size++] = (byte) (n >>> 16);
+            canonical[size++] = (byte) (n >>> 8);
+            canonical[size++] = (byte) n;
+            if (n > 0) {
+                System.arraycopy(src, fields.start(f), canonical, size, n);
+                size += n;
+            }
+        }
+        return murmur3x64x128(canonical, 0, size);
+    }
+
+    private static byte[] ensure(byte[] a, int size) {
+        return size <= a.length ? a : Arrays.copyOf(a, Math.max(size, a.length * 2));
+    }
+
+    static byte[] murmur3x64x128(byte[] data, int off, int len) {
+        long h1 = 0;
+        long h2 = 0;
+        int blocks = len / 16;
+
+        for (int b = 0; b < blocks; b++) {
+            int p = off + b * 16;
+            long k1 = getLongLE(data, p);
+            long k2 = getLongLE(data, p + 8);
+
+            h1 ^= mixK1(k1);
+            h1 = Long.rotateLeft(h1, 27);
+            h1 += h2;
+            h1 = h1 * 5 + 0x52dce729;
+
+            h2 ^= mixK2(k2);
+            h2 = Long.rotateLeft(h2, 31);
+            h2 += h1;
+            h2 = h2 * 5 + 0x38495ab5;
+        }
+
+        int tail = off + blocks * 16;
+        long k1 = 0;
+        long k2 = 0;
+        switch (len & 15) {
+            case 15: k2 ^= (long) (data[tail + 14] & 0xff) << 48;
+            case 14: k2 ^= (long) (data[tail + 13] & 0xff) << 40;
+            case 13: k2 ^= (long) (data[tail + 12] & 0xff) << 32;
+            case 12: k2 ^= (long) (data[tail + 11] & 0xff) << 24;
+            case 11: k2 ^= (long) (data[tail + 10] & 0xff) << 16;
+            case 10: k2 ^= (long) (data[tail + 9] & 0xff) << 8;
+            case 9:
+                k2 ^= data[tail + 8] & 0xff;
+                h2 ^= mixK2(k2);
+            case 8: k1 ^= (long) (data[tail + 7] & 0xff) << 56;
+            case 7: k1 ^= (long) (data[tail + 6] & 0xff) << 48;
+            case 6: k1 ^= (long) (data[tail + 5] & 0xff) << 40;
+            case 5: k1 ^= (long) (data[tail + 4] & 0xff) << 32;
+            case 4: k1 ^= (long) (data[tail + 3] & 0xff) << 24;
+            case 3: k1 ^= (long) (data[tail + 2] & 0xff) << 16;
+            case 2: k1 ^= (long) (data[tail + 1] & 0xff) << 8;
+            case 1:
+                k1 ^= data[tail] & 0xff;
+                h1 ^= mixK1(k1);
+            default:
+        }
+
+        h1 ^= len;
+        h2 ^= len;
+        h1 += h2;
+        h2 += h1;
+        h1 = fmix64(h1);
+        h2 = fmix64(h2);
+        h1 += h2;
+        h2 += h1;
+
+        byte[] out = new byte[16];
+        putLongLE(out, 0, h1);
+        putLongLE(out, 8, h2);
+        return out;
+    }
+
+    private static long mixK1(long k1) {
+        k1 *= C1;
+        k1 = Long.rotateLeft(k1, 31);
+        return k1 * C2;
+    }
+
+    private static long mixK2(long k2) {
+        k2 *= C2;
+        k2 = Long.rotateLeft(k2, 33);
+        return k2 * C1;
+    }
+
+    private static long fmix64(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+
+    private static long getLongLE(byte[] a, int p) {
+        return (a[p] & 0xffL)
+                | (a[p + 1] & 0xffL) << 8
+                | (a[p + 2] & 0xffL) << 16
+                | (a[p + 3] & 0xffL) << 24
+                | (a[p + 4] & 0xffL) << 32
+                | (a[p + 5] & 0xffL) << 40
+                | (a[p + 6] & 0xffL) << 48
+                | (a[p + 7] & 0xffL) << 56;
+    }
+
+    private static void putLongLE(byte[] a, int p, long v) {
+        for (int i = 0; i < 8; i++) {
+            a[p + i] = (byte) (v >>> (8 * i));
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.github.dimitryivaniuta.loansanalytics.ingest;
+
+/**
+ * A run request that {@link IngestionRunScheduler} cannot accept right now; retrying later may succeed.
+ */
+public class RunQueueFullException extends IllegalStateException {
+
+    public RunQueueFullException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,129 @@
+package com.github.dimitryivaniuta.loansanalytics.ingest;
+
+import com.github.dimitryivaniuta.loansanalytics.ingest.feed.FeedDefinition;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.UUID;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Single-pass snapshot + delta ({@code loans.ingestion.delta.single-pass}).
+ *
+ * <p>One statement with data-modifying CTEs: the run's staging rows are read once, upserted into the snapshot
+ * and, in the same pass, joined to the previous day's snapshot to write the delta_event rows. Row counts come
+ * from the statement itself, no separate {@code COUNT(*)} queries.</p>
+ *
+ * <p>All parts of the statement see the same database snapshot, so snap(asOf) after the upsert is not visible to
+ * the delta. Its current side is rebuilt instead: the staged rows plus the rows already in snap(asOf) whose key
+ * the file does not contain, which the upsert leaves in place. On a first load of a day the second part is empty;
+ * on a same-day re-run it keeps keys loaded earlier that day, so the delta is the same as the multi-step path
+ * ({@link SnapshotRepository#upsertSnapshotFromStaging} then {@link DeltaRepository#generateDelta}).</p>
+ */
+@Repository
+@RequiredArgsConstructor
+public class SnapshotDeltaMergeRepository {
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final SnapshotRepository snapshotRepository;
+
+    /**
+     * Upserts the run's staging rows into snap(asOf) and inserts the delta of snap(asOf) after the upsert vs
+     * snap({@code prevAsOf}).
+     * The caller deletes earlier delta rows of the run/feed first (see {@link DeltaRepository#deleteDelta}).
+     */
+    public MergeCounts upsertSnapshotAndInsertDelta(UUID runId, FeedDefinition feed, LocalDate asOf, LocalDate prevAsOf) {
+        String firstPk = feed.primaryKeyColumns().get(0);
+
+        // remove snapshot metadata from payloads
+        String currPayload = "(to_jsonb(c) - 'as_of_date' - 'row_hash' - 'row_hash128' - 'source_file' - 'ingested_at')";
+        String prevPayload = "(to_jsonb(p) - 'as_of_date' - 'row_hash' - 'row_hash128' - 'source_file' - 'ingested_at')";
+
+        String sql = """
+                WITH staged AS MATERIALIZED (
+                %s
+                ),
+                curr AS (
+                  SELECT * FROM staged
+                  UNION ALL
+                  SELECT s.as_of_date,%s,s.row_hash,s.row_hash128,s.source_file
+                  FROM %s s
+                  WHERE s.as_of_date=:asOf
+                    AND NOT EXISTS (SELECT 1 FROM staged x WHERE %s)
+                ),
+                upserted AS (
+                %s
+                  RETURNING 1
+                ),
+                inserted AS (
+                  INSERT INTO delta_event(
+                    job_run_id, feed_name, as_of_date, op,
+                    entity_key, old_row_hash, new_row_hash,
+                    before_row, after_row, changed_fields, created_at
+                  )
+                  SELECT :id, :feed, :asOf, d.op, d.entity_key, d.old_row_hash, d.new_row_hash,
+                         d.before_row, d.after_row, d.changed_fields, now()
+                  FROM (
+                    SELECT
+                      CASE WHEN p.%s IS NULL THEN 'I' WHEN c.%s IS NULL THEN 'D' ELSE 'U' END AS op,
+                      %s AS entity_key,
+                      coalesce(p.row_hash, encode(p.row_hash128, 'hex')) AS old_row_hash,
+                      coalesce(c.row_hash, encode(c.row_hash128, 'hex')) AS new_row_hash,
+                      CASE WHEN p.%s IS NULL THEN NULL ELSE %s END AS before_row,
+                      CASE WHEN c.%s IS NULL THEN NULL ELSE %s END AS after_row,
+                      CASE WHEN p.%s IS NOT NULL AND c.%s IS NOT NULL THEN %s ELSE '{}'::jsonb END AS changed_fields
+                    FROM curr c
+                    FULL OUTER JOIN (SELECT * FROM %s s WHERE s.as_of_date=:prev) p
+                      ON %s
+                    WHERE p.%s IS NULL OR c.%s IS NULL OR CASE
+                        WHEN p.row_hash128 IS NOT NULL AND c.row_hash128 IS NOT NULL THEN p.row_hash128 <> c.row_hash128
+                        WHEN p.row_hash IS NOT NULL AND c.row_hash IS NOT NULL THEN p.row_hash <> c.row_hash
+                        ELSE true
+                      END
+                  ) d
+                  WHERE d.op <> 'U' OR d.changed_fields <> '{}'::jsonb
+                  RETURNING 1
+                )
+                SELECT
+                  (SELECT count(*) FROM staged) AS staged,
+                  (SELECT count(*) FROM upserted) AS upserted,
+                  (SELECT count(*) FROM inserted) AS delta
+                """.formatted(
+                snapshotRepository.stagedRowsSql(runId, feed),
+                "s." + String.join(",s.", feed.dataColumns()),
+                feed.snapshotTable(),
+                feed.pkJoinCondition("x", "s"),
+                SnapshotRepository.upsertSql(feed, "staged"),
+                firstPk,
+                firstPk,
+                feed.entityKeyJsonExpr("c", "p"),
+                firstPk,
+                prevPayload,
+                firstPk,
+                currPayload,
+                firstPk,
+                firstPk,
+                feed.typedDiffExpr("p", "c"),
+                feed.snapshotTable(),
+                feed.pkJoinCondition("c", "p"),
+                firstPk,
+                firstPk
+        );
+
+        return jdbc.queryForObject(sql, Map.of(
+                "id", runId,
+                "feed", feed.name().name(),
+                "asOf", asOf,
+                "prev", prevAsOf
+        ), (rs, i) -> new MergeCounts(rs.getLong("staged"), rs.getLong("upserted"), rs.getInt("delta")));
+    }
+
+    /**
+     * @param staged   rows read from staging
+     * @param upserted snapshot rows inserted or updated
+     * @param delta    delta_event rows written
+     */
+    public record MergeCounts(long staged, long upserted, int delta) {
+    }
+}
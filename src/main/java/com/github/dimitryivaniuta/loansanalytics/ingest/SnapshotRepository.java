@@ -1,7 +1,11 @@
 package com.github.dimitryivaniuta.loansanalytics.ingest;
 
+import com.github.dimitryivaniuta.loansanalytics.LoansIngestionProperties;
 import com.github.dimitryivaniuta.loansanalytics.ingest.feed.FeedDefinition;
+import java.sql.Timestamp;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import lombok.RequiredArgsConstructor;
@@ -13,10 +17,11 @@ import org.springframework.stereotype.Repository;
 public class SnapshotRepository {
 
     private final NamedParameterJdbcTemplate jdbc;
+    private final LoansIngestionProperties props;
 
     public long countStagedRows(UUID runId, FeedDefinition feed, LocalDate asOf) {
-        String sql = "SELECT COUNT(*) FROM " + feed.stagingTable() + " WHERE job_run_id=:id AND as_of_date=:asOf";
-        return jdbc.query(sql, Map.of("id", runId, "asOf", asOf), rs -> {
+        String sql = "SELECT COUNT(*) FROM " + feed.runStagingTable(runId) + " WHERE as_of_date=:asOf";
+        return jdbc.query(sql, Map.of("asOf", asOf), rs -> {
             rs.next();
             return rs.getLong(1);
         });
@@ -31,18 +36,76 @@ public class SnapshotRepository {
     }
 
     /**
-     * Upserts staging rows into the daily snapshot table.
+     * Creates the snapshot partition for {@code asOf} if missing (snap_* tables are range-partitioned per day).
      *
-     * <p>Row hash is computed in SQL using SHA-256 over the canonical JSON representation
-     * of the row (excluding ingest metadata columns).</p>
+     * <p>Call outside the feed transaction: partition DDL locks the parent table until commit.</p>
      */
-    public void upsertSnapshotFromStaging(UUID runId, FeedDefinition feed, LocalDate asOf) {
-        String insertCols = String.join(",", feed.dataColumns());
+    public void ensureSnapshotPartition(FeedDefinition feed, LocalDate asOf) {
+        jdbc.queryForObject("SELECT ensure_daily_partition(:table, :asOf)",
+                Map.of("table", feed.snapshotTable(), "asOf", asOf), String.class);
+    }
+
+    /**
+     * Drops (or only detaches, for archiving) the snapshot day partitions older than {@code cutoff}.
+     */
+    public int retireSnapshotPartitionsBefore(FeedDefinition feed, LocalDate cutoff, boolean detachOnly) {
+        String fn = detachOnly ? "detach_daily_partitions_before" : "drop_daily_partitions_before";
+        Integer n = jdbc.queryForObject("SELECT " + fn + "(:table, :cutoff)",
+                Map.of("table", feed.snapshotTable(), "cutoff", cutoff), Integer.class);
+        return n == null ? 0 : n;
+    }
+
+    /**
+     * Upserts the run's staging rows into the daily snapshot table.
+     *
+     * <p>With {@code row-hash=SQL} the row hash is computed here using SHA-256 over the canonical JSON
+     * representation of the row (excluding ingest metadata columns) into {@code row_hash}. With
+     * {@code row-hash=JAVA} staging already carries {@code row_hash128} from the COPY stream and it is copied
+     * as-is; {@code row_hash} stays NULL.</p>
+     *
+     * <p>Returns the number of snapshot rows inserted or updated.</p>
+     */
+    public int upsertSnapshotFromStaging(UUID runId, FeedDefinition feed, LocalDate asOf) {
+        return jdbc.update(upsertSql(feed, "(" + stagedRowsSql(runId, feed) + ")"), Map.of("asOf", asOf));
+    }
+
+    /**
+     * The run's staging rows for {@code :asOf} in snapshot shape: as_of_date, the data columns, row_hash,
+     * row_hash128, source_file.
+     */
+    String stagedRowsSql(UUID runId, FeedDefinition feed) {
         String selectCols = "s." + String.join(",s.", feed.dataColumns());
 
-        // Exclude staging metadata from hash input.
-        String hashExpr = "encode(digest((to_jsonb(s) - 'job_run_id' - 'as_of_date' - 'source_file' - 'loaded_at')::text, 'sha256'), 'hex')";
+        // Exclude staging metadata from hash input. NULLs are typed: the single-pass merge UNIONs these rows
+        // with snapshot rows.
+        boolean javaHash = props.rowHash() == LoansIngestionProperties.RowHash.JAVA;
+        String hashExpr = javaHash
+                ? "CAST(NULL AS TEXT)"
+                : "encode(digest((to_jsonb(s) - 'job_run_id' - 'as_of_date' - 'source_file' - 'loaded_at' - 'row_hash128')::text, 'sha256'), 'hex')";
+        String hash128Expr = javaHash ? "s.row_hash128" : "CAST(NULL AS BYTEA)";
 
+        return """
+                SELECT
+                  s.as_of_date,%s,
+                  %s AS row_hash,
+                  %s AS row_hash128,
+                  s.source_file
+                FROM %s s
+                WHERE s.as_of_date=:asOf""".formatted(
+                selectCols,
+                hashExpr,
+                hash128Expr,
+                feed.runStagingTable(runId)
+        );
+    }
+
+    /**
+     * {@code INSERT ... ON CONFLICT DO UPDATE} of the snapshot from {@code source}, a relation shaped like
+     * {@link #stagedRowsSql}.
+     */
+    static String upsertSql(FeedDefinition feed, String source) {
+        String insertCols = String.join(",", feed.dataColumns());
+        String selectCols = "s." + String.join(",s.", feed.dataColumns());
         String conflictCols = "as_of_date," + String.join(",", feed.primaryKeyColumns());
 
         // Update all non-PK data columns.
@@ -59,38 +122,60 @@ public class SnapshotRepository {
         if (!update.isEmpty()) {
             update.append(", ");
         }
-        update.append("row_hash = EXCLUDED.row_hash, source_file = EXCLUDED.source_file, ingested_at = EXCLUDED.ingested_at");
+        update.append("row_hash = EXCLUDED.row_hash, row_hash128 = EXCLUDED.row_hash128, source_file = EXCLUDED.source_file, ingested_at = EXCLUDED.ingested_at");
 
-        String sql = """
-                INSERT INTO %s (as_of_date,%s,row_hash,source_file,ingested_at)
+        return """
+                INSERT INTO %s (as_of_date,%s,row_hash,row_hash128,source_file,ingested_at)
                 SELECT
                   s.as_of_date,%s,
-                  %s AS row_hash,
+                  s.row_hash,
+                  s.row_hash128,
                   s.source_file,
                   now() AS ingested_at
                 FROM %s s
-                WHERE s.job_run_id=:id AND s.as_of_date=:asOf
                 ON CONFLICT (%s) DO UPDATE SET
-                  %s
-                """.formatted(
+                  %s""".formatted(
                 feed.snapshotTable(),
                 insertCols,
                 selectCols,
-                hashExpr,
-                feed.stagingTable(),
+                source,
                 conflictCols,
                 update
         );
+    }
 
-        jdbc.update(sql, Map.of("id", runId, "asOf", asOf));
+    /**
+     * Creates the run's UNLOGGED staging table from the feed's {@code stg_*} template. UNLOGGED skips WAL for
+     * the COPY; a per-run table keeps concurrent runs apart (COPY chunks load it from several connections,
+     * so a temp table would not do) and is dropped as a whole instead of leaving deleted rows behind.
+     */
+    public void createRunStaging(UUID runId, FeedDefinition feed) {
+        jdbc.getJdbcTemplate().execute("CREATE UNLOGGED TABLE IF NOT EXISTS " + feed.runStagingTable(runId)
+                + " (LIKE " + feed.stagingTable() + " INCLUDING DEFAULTS)");
     }
 
-    public void truncateStaging(UUID runId, FeedDefinition feed, LocalDate asOf) {
-        jdbc.update("DELETE FROM " + feed.stagingTable() + " WHERE job_run_id=:id AND as_of_date=:asOf",
-                Map.of("id", runId, "asOf", asOf));
+    public void dropRunStaging(UUID runId, FeedDefinition feed) {
+        jdbc.getJdbcTemplate().execute("DROP TABLE IF EXISTS " + feed.runStagingTable(runId));
     }
 
-    public void deleteStaging(UUID runId, FeedDefinition feed) {
-        jdbc.update("DELETE FROM " + feed.stagingTable() + " WHERE job_run_id=:id", Map.of("id", runId));
+    /**
+     * Drops run staging tables left behind by failed runs (kept for investigation) once their run finished
+     * before {@code cutoff}, as well as those of runs no longer in job_run.
+     */
+    public int dropStaleRunStaging(Instant cutoff) {
+        List<String> stale = jdbc.queryForList("""
+                SELECT t.relname
+                FROM pg_class t
+                JOIN pg_namespace n ON n.oid = t.relnamespace
+                LEFT JOIN job_run j ON j.id = right(t.relname, 32)::uuid
+                WHERE n.nspname = current_schema()
+                  AND t.relkind = 'r'
+                  AND t.relname ~ '^stg_[a-z_]+_r[0-9a-f]{32}$'
+                  AND (j.id IS NULL OR j.finished_at < :cutoff)
+                """, Map.of("cutoff", Timestamp.from(cutoff)), String.class);
+        for (String table : stale) {
+            jdbc.getJdbcTemplate().execute("DROP TABLE IF EXISTS " + table);
+        }
+        return stale.size();
     }
 }
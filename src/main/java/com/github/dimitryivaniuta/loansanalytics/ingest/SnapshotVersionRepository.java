@@ -0,0 +1,163 @@
+package com.github.dimitryivaniuta.loansanalytics.ingest;
+
+import com.github.dimitryivaniuta.loansanalytics.ingest.feed.FeedDefinition;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.UUID;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Sparse snapshot storage ({@code loans.ingestion.snapshot-storage=VERSIONED}): {@code ver_*} tables hold one
+ * row per entity version, valid on the days {@code [valid_from, valid_to)}, instead of a full copy per day.
+ *
+ * <p>Applying a day closes the current versions whose row hash changed or whose key is missing from the file
+ * ({@code valid_to = asOf}) and opens a version for every new or changed staged row ({@code valid_from = asOf}),
+ * so the nightly write volume follows the number of changed rows rather than the portfolio size. The delta of the
+ * day is the versions closed and opened on it, see {@link DeltaRepository#generateDeltaFromVersions}.</p>
+ *
+ * <p>Days are applied in order per feed (recorded in {@code snapshot_version_load}). Re-running the latest day
+ * first rolls back its versions; an earlier day is refused, history is not rewritten. When a feed has no version
+ * history yet, the daily snapshot of the baseline day (if any) seeds it, so switching storage modes does not
+ * turn the first delta into inserts only. Callers hold the feed's version lock
+ * ({@link IngestLockRepository#lockFeedVersions}) and a transaction.</p>
+ */
+@Slf4j
+@Repository
+@RequiredArgsConstructor
+public class SnapshotVersionRepository {
+
+    private static final String META_COLS = "row_hash,row_hash128,source_file,ingested_at";
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final SnapshotRepository snapshotRepository;
+
+    /**
+     * Applies the run's staging rows for {@code asOf} to the feed's version table.
+     */
+    public VersionCounts applyDay(UUID runId, FeedDefinition feed, LocalDate asOf, LocalDate prevAsOf) {
+        Map<String, Object> params = Map.of("feed", feed.name().name(), "asOf", asOf, "prev", prevAsOf, "id", runId);
+
+        LocalDate latest = jdbc.queryForObject(
+                "SELECT max(as_of_date) FROM snapshot_version_load WHERE feed_name=:feed", params, LocalDate.class);
+        if (latest != null && asOf.isBefore(latest)) {
+            throw new IllegalStateException("Feed " + feed.name() + " has versions up to " + latest
+                    + "; VERSIONED snapshot storage cannot apply the earlier day " + asOf);
+        }
+        if (latest == null) {
+            seedFromDailySnapshot(feed, prevAsOf, params);
+        } else if (asOf.equals(latest)) {
+            rollbackDay(feed, params);
+        }
+
+        String cols = String.join(",", feed.dataColumns());
+        String staged = snapshotRepository.stagedRowsSql(runId, feed);
+
+        // 1) close current versions whose key is gone or whose hash changed (compared like with like,
+        //    rows hashed in different modes count as changed)
+        int closed = jdbc.update("""
+                UPDATE %s v SET valid_to = :asOf
+                WHERE v.valid_to = 'infinity'
+                  AND NOT EXISTS (
+                    SELECT 1 FROM (%s) s
+                    WHERE %s AND %s
+                  )
+                """.formatted(feed.versionTable(), staged, feed.pkJoinCondition("s", "v"), sameHash("s", "v")), params);
+
+        // 2) open a version for every staged row without a current version (new keys and the ones just closed)
+        int opened = jdbc.update("""
+                INSERT INTO %s (%s,%s,valid_from,valid_to)
+                SELECT %s, s.row_hash, s.row_hash128, s.source_file, now(), :asOf, 'infinity'
+                FROM (%s) s
+                WHERE NOT EXISTS (
+                  SELECT 1 FROM %s v WHERE v.valid_to = 'infinity' AND %s
+                )
+                """.formatted(feed.versionTable(), cols, META_COLS, "s." + String.join(",s.", feed.dataColumns()),
+                staged, feed.versionTable(), feed.pkJoinCondition("s", "v")), params);
+
+        jdbc.update("""
+                INSERT INTO snapshot_version_load (feed_name, as_of_date, job_run_id, loaded_at)
+                VALUES (:feed, :asOf, :id, now())
+                ON CONFLICT (feed_name, as_of_date) DO UPDATE SET job_run_id = EXCLUDED.job_run_id, loaded_at = now()
+                """, params);
+
+        log.info("Feed {} asOf={} versions closed={} opened={}", feed.name(), asOf, closed, opened);
+        return new VersionCounts(closed, opened);
+    }
+
+    /**
+     * The latest day applied before {@code asOf}: the previous side of its delta. Null when the feed has no
+     * version history yet (the first load seeds it from the daily snapshot of the baseline day).
+     */
+    public LocalDate findPreviousLoad(FeedDefinition feed, LocalDate asOf) {
+        return jdbc.queryForObject(
+                "SELECT max(as_of_date) FROM snapshot_version_load WHERE feed_name=:feed AND as_of_date < :asOf",
+                Map.of("feed", feed.name().name(), "asOf", asOf), LocalDate.class);
+    }
+
+    /**
+     * Number of rows in the snapshot as of {@code asOf}, i.e. the versions valid on that day.
+     */
+    public long countAsOf(FeedDefinition feed, LocalDate asOf) {
+        Long n = jdbc.queryForObject("SELECT count(*) FROM (" + snapshotAsOfSql(feed) + ") x",
+                Map.of("asOf", asOf), Long.class);
+        return n == null ? 0 : n;
+    }
+
+    /**
+     * The snapshot as of {@code :asOf} in snapshot shape (as_of_date, data columns, hashes, source_file,
+     * ingested_at): a range lookup over the version table.
+     */
+    public String snapshotAsOfSql(FeedDefinition feed) {
+        return "SELECT CAST(:asOf AS DATE) AS as_of_date," + String.join(",", feed.dataColumns()) + "," + META_COLS
+                + " FROM " + feed.versionTable() + " WHERE valid_from <= :asOf AND valid_to > :asOf";
+    }
+
+    /**
+     * Deletes versions that stopped being valid on or before {@code cutoff}; snapshots as of {@code cutoff}
+     * and later are unaffected.
+     */
+    public int deleteClosedBefore(FeedDefinition feed, LocalDate cutoff) {
+        return jdbc.update("DELETE FROM " + feed.versionTable() + " WHERE valid_to <= :cutoff",
+                Map.of("cutoff", cutoff));
+    }
+
+    private void seedFromDailySnapshot(FeedDefinition feed, LocalDate prevAsOf, Map<String, Object> params) {
+        String cols = String.join(",", feed.dataColumns());
+        int seeded = jdbc.update("""
+                INSERT INTO %s (%s,%s,valid_from,valid_to)
+                SELECT %s,%s, as_of_date, 'infinity' FROM %s WHERE as_of_date = :prev
+                """.formatted(feed.versionTable(), cols, META_COLS, cols, META_COLS, feed.snapshotTable()), params);
+        if (seeded > 0) {
+            jdbc.update("INSERT INTO snapshot_version_load (feed_name, as_of_date) VALUES (:feed, :prev)", params);
+            log.info("Feed {} version history seeded with {} rows of the {} daily snapshot", feed.name(), seeded, prevAsOf);
+        }
+    }
+
+    /**
+     * Undoes an earlier application of {@code :asOf}: versions it opened are deleted, versions it closed reopened.
+     */
+    private void rollbackDay(FeedDefinition feed, Map<String, Object> params) {
+        int deleted = jdbc.update("DELETE FROM " + feed.versionTable() + " WHERE valid_from = :asOf", params);
+        int reopened = jdbc.update("UPDATE " + feed.versionTable() + " SET valid_to = 'infinity' WHERE valid_to = :asOf", params);
+        log.info("Feed {} re-run of {}: {} versions removed, {} reopened", feed.name(), params.get("asOf"), deleted, reopened);
+    }
+
+    private static String sameHash(String a, String b) {
+        return """
+                CASE
+                  WHEN %1$s.row_hash128 IS NOT NULL AND %2$s.row_hash128 IS NOT NULL THEN %1$s.row_hash128 = %2$s.row_hash128
+                  WHEN %1$s.row_hash IS NOT NULL AND %2$s.row_hash IS NOT NULL THEN %1$s.row_hash = %2$s.row_hash
+                  ELSE false
+                END""".formatted(a, b);
+    }
+
+    /**
+     * @param closed versions closed on the day (changed or removed keys)
+     * @param opened versions opened on the day (new or changed keys), i.e. rows written
+     */
+    public record VersionCounts(int closed, int opened) {
+    }
+}
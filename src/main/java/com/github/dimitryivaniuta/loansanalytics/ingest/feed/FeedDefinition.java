@@ -8,6 +8,7 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
+import java.util.UUID;
 
 /**
  * Declarative feed definition:
@@ -43,6 +44,22 @@ public record FeedDefinition(
         return filePattern.formatted(date);
     }
 
+    /**
+     * Per-run staging table, e.g. {@code stg_loan_master_r<run id hex>}: an UNLOGGED copy of
+     * {@link #stagingTable()} (the template) that holds one run's rows of this feed only.
+     */
+    public String runStagingTable(UUID runId) {
+        return stagingTable + "_r" + runId.toString().replace("-", "");
+    }
+
+    /**
+     * Row-version table used with {@code snapshot-storage=VERSIONED}, e.g. {@code ver_loan_master}: the snapshot
+     * columns without {@code as_of_date}, plus {@code valid_from}/{@code valid_to}.
+     */
+    public String versionTable() {
+        return snapshotTable.replaceFirst("^snap_", "ver_");
+    }
+
     /**
      * Maps CSV header names into DB columns (in the same order as in the file).
      *
@@ -74,6 +91,69 @@ public record FeedDefinition(
         return String.join(" AND ", parts);
     }
 
+    /**
+     * 32-bit hash of the primary key, e.g. {@code hashtext(concat_ws('|', s.loan_id, s.installment_no))}.
+     */
+    public String pkHashExpr(String alias) {
+        List<String> cols = new ArrayList<>();
+        for (String pk : primaryKeyColumns) {
+            cols.add(alias + "." + pk);
+        }
+        return "hashtext(concat_ws('|', " + String.join(", ", cols) + "))";
+    }
+
+    /**
+     * Name of the generated per-feed diff function, e.g. {@code delta_diff_loan_master}.
+     */
+    public String diffFunctionName() {
+        return "delta_diff_" + name.name().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * {@code CREATE OR REPLACE FUNCTION} for {@link #diffFunctionName()}: takes the previous and current snapshot
+     * rows and returns the changed data columns as {@code {"col": {"before": .., "after": ..}}}, comparing the
+     * typed columns with {@code IS DISTINCT FROM}; {@code '{}'} when none differ. Same output as
+     * {@code jsonb_diff} over the payloads, without serializing unchanged columns.
+     */
+    public String diffFunctionSql() {
+        StringBuilder body = new StringBuilder();
+        for (String col : dataColumns) {
+            body.append("  IF p.").append(col).append(" IS DISTINCT FROM c.").append(col).append(" THEN\n")
+                    .append("    d := d || jsonb_build_object('").append(col).append("', jsonb_build_object(")
+                    .append("'before', to_jsonb(p.").append(col).append("), 'after', to_jsonb(c.").append(col).append(")));\n")
+                    .append("  END IF;\n");
+        }
+        return """
+                CREATE OR REPLACE FUNCTION %s(p %s, c %s)
+                RETURNS JSONB
+                LANGUAGE plpgsql
+                IMMUTABLE PARALLEL SAFE
+                AS $$
+                DECLARE
+                  d JSONB := '{}'::jsonb;
+                BEGIN
+                %s  RETURN d;
+                END;
+                $$
+                """.formatted(diffFunctionName(), snapshotTable, snapshotTable, body);
+    }
+
+    /**
+     * Inline form of the {@link #diffFunctionName()} function, for rows that are not of the snapshot row type
+     * (e.g. staging rows in the single-pass merge, row versions). Same output.
+     */
+    public String typedDiffExpr(String prevAlias, String currAlias) {
+        List<String> parts = new ArrayList<>();
+        for (String col : dataColumns) {
+            String p = prevAlias + "." + col;
+            String c = currAlias + "." + col;
+            parts.add("CASE WHEN " + p + " IS DISTINCT FROM " + c
+                    + " THEN jsonb_build_object('" + col + "', jsonb_build_object('before', to_jsonb(" + p + "), 'after', to_jsonb(" + c + ")))"
+                    + " ELSE '{}'::jsonb END");
+        }
+        return "('{}'::jsonb || " + String.join(" || ", parts) + ")";
+    }
+
     public String entityKeyJsonExpr(String currentAlias, String prevAlias) {
         // jsonb_build_object('loan_id', coalesce(c.loan_id, p.loan_id), ...)
         Map<String, String> kv = new LinkedHashMap<>();
@@ -0,0 +1,44 @@
+package db.migration;
+
+import com.github.dimitryivaniuta.loansanalytics.ingest.feed.FeedDefinition;
+import com.github.dimitryivaniuta.loansanalytics.ingest.feed.FeedRegistry;
+import java.nio.charset.StandardCharsets;
+import java.sql.Statement;
+import java.util.Comparator;
+import java.util.List;
+import java.util.zip.CRC32;
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+/**
+ * Generates one typed diff function per feed ({@code delta_diff_<feed>(p snap_x, c snap_x)}) from
+ * {@link FeedRegistry}, see {@link FeedDefinition#diffFunctionSql()}.
+ *
+ * <p>Repeatable: the checksum is taken over the generated SQL, so Flyway re-runs it after the versioned
+ * migrations whenever a feed's columns change.</p>
+ */
+public class R__feed_diff_functions extends BaseJavaMigration {
+
+    private final List<String> statements = new FeedRegistry().all().stream()
+            .sorted(Comparator.comparing(FeedDefinition::name))
+            .map(FeedDefinition::diffFunctionSql)
+            .toList();
+
+    @Override
+    public Integer getChecksum() {
+        CRC32 crc = new CRC32();
+        for (String sql : statements) {
+            crc.update(sql.getBytes(StandardCharsets.UTF_8));
+        }
+        return (int) crc.getValue();
+    }
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        try (Statement st = context.getConnection().createStatement()) {
+            for (String sql : statements) {
+                st.execute(sql);
+            }
+        }
+    }
+}
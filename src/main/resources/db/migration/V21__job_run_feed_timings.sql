@@ -0,0 +1,5 @@
+-- Per-phase timings so parallel runs can be compared with sequential ones.
+ALTER TABLE job_run_feed
+    ADD COLUMN IF NOT EXISTS copy_ms   BIGINT,
+    ADD COLUMN IF NOT EXISTS upsert_ms BIGINT,
+    ADD COLUMN IF NOT EXISTS delta_ms  BIGINT;
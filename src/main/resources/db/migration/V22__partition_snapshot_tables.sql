@@ -0,0 +1,94 @@
+-- Daily range partitions keyed by as_of_date.
+-- Partitions are named <parent>_pYYYYMMDD and created on demand by the pipeline.
+
+CREATE OR REPLACE FUNCTION ensure_daily_partition(parent TEXT, day DATE)
+RETURNS TEXT
+LANGUAGE plpgsql
+AS $$
+DECLARE
+  part TEXT := format('%s_p%s', parent, to_char(day, 'YYYYMMDD'));
+BEGIN
+  IF to_regclass(part) IS NULL THEN
+    -- serialize concurrent creators of the same partition
+    PERFORM pg_advisory_xact_lock(hashtext(part));
+    IF to_regclass(part) IS NULL THEN
+      EXECUTE format('CREATE TABLE %I PARTITION OF %I FOR VALUES FROM (%L) TO (%L)', part, parent, day, day + 1);
+    END IF;
+  END IF;
+  RETURN part;
+END;
+$$;
+
+CREATE OR REPLACE FUNCTION drop_daily_partitions_before(parent TEXT, cutoff DATE)
+RETURNS INT
+LANGUAGE plpgsql
+AS $$
+DECLARE
+  part TEXT;
+  dropped INT := 0;
+BEGIN
+  FOR part IN
+    SELECT c.relname
+    FROM pg_inherits i
+    JOIN pg_class c ON c.oid = i.inhrelid
+    WHERE i.inhparent = parent::regclass
+      AND c.relname ~ ('^' || parent || '_p[0-9]{8}$')
+      AND to_date(right(c.relname, 8), 'YYYYMMDD') < cutoff
+    ORDER BY c.relname
+  LOOP
+    EXECUTE format('DROP TABLE %I', part);
+    dropped := dropped + 1;
+  END LOOP;
+  RETURN dropped;
+END;
+$$;
+
+-- Rebuild every snap_* table as a partitioned table (one-off data move).
+DO $$
+DECLARE
+  t        TEXT;
+  legacy   TEXT;
+  pk_cols  TEXT;
+  idx_defs TEXT[];
+  idx      TEXT;
+  d        DATE;
+BEGIN
+  FOREACH t IN ARRAY ARRAY[
+    'snap_loan_master', 'snap_payment_transaction', 'snap_borrower', 'snap_coborrower',
+    'snap_collateral', 'snap_payment_schedule', 'snap_delinquency', 'snap_rate',
+    'snap_escrow', 'snap_modification', 'snap_contact_crm'
+  ] LOOP
+    legacy := t || '_unpartitioned';
+
+    SELECT string_agg(quote_ident(a.attname), ',' ORDER BY array_position(i.indkey::int2[], a.attnum))
+      INTO pk_cols
+    FROM pg_index i
+    JOIN pg_attribute a ON a.attrelid = i.indrelid AND a.attnum = ANY (i.indkey)
+    WHERE i.indrelid = t::regclass AND i.indisprimary;
+
+    -- secondary indexes, except the as_of_date ones that partition pruning makes redundant
+    SELECT array_agg(indexdef)
+      INTO idx_defs
+    FROM pg_indexes
+    WHERE tablename = t
+      AND indexname <> t || '_pkey'
+      AND indexname NOT LIKE '%\_asof';
+
+    EXECUTE format('ALTER TABLE %I RENAME TO %I', t, legacy);
+    EXECUTE format('CREATE TABLE %I (LIKE %I INCLUDING DEFAULTS) PARTITION BY RANGE (as_of_date)', t, legacy);
+
+    FOR d IN EXECUTE format('SELECT DISTINCT as_of_date FROM %I', legacy) LOOP
+      PERFORM ensure_daily_partition(t, d);
+    END LOOP;
+    EXECUTE format('INSERT INTO %I SELECT * FROM %I', t, legacy);
+
+    EXECUTE format('DROP TABLE %I', legacy);
+    EXECUTE format('ALTER TABLE %I ADD PRIMARY KEY (%s)', t, pk_cols);
+    IF idx_defs IS NOT NULL THEN
+      FOREACH idx IN ARRAY idx_defs LOOP
+        EXECUTE idx;
+      END LOOP;
+    END IF;
+  END LOOP;
+END;
+$$;
@@ -0,0 +1,56 @@
+-- delta_event becomes RANGE (as_of_date) partitioned, one partition per day (delta_event_pYYYYMMDD),
+-- created on demand by the pipeline via ensure_daily_partition().
+
+CREATE OR REPLACE FUNCTION detach_daily_partitions_before(parent TEXT, cutoff DATE)
+RETURNS INT
+LANGUAGE plpgsql
+AS $$
+DECLARE
+  part TEXT;
+  detached INT := 0;
+BEGIN
+  FOR part IN
+    SELECT c.relname
+    FROM pg_inherits i
+    JOIN pg_class c ON c.oid = i.inhrelid
+    WHERE i.inhparent = parent::regclass
+      AND c.relname ~ ('^' || parent || '_p[0-9]{8}$')
+      AND to_date(right(c.relname, 8), 'YYYYMMDD') < cutoff
+    ORDER BY c.relname
+  LOOP
+    EXECUTE format('ALTER TABLE %I DETACH PARTITION %I', parent, part);
+    detached := detached + 1;
+  END LOOP;
+  RETURN detached;
+END;
+$$;
+
+ALTER TABLE delta_event RENAME TO delta_event_unpartitioned;
+ALTER SEQUENCE delta_event_id_seq OWNED BY NONE;
+
+CREATE TABLE delta_event (
+  LIKE delta_event_unpartitioned INCLUDING DEFAULTS INCLUDING CONSTRAINTS
+) PARTITION BY RANGE (as_of_date);
+
+DO $$
+DECLARE
+  d DATE;
+BEGIN
+  FOR d IN SELECT DISTINCT as_of_date FROM delta_event_unpartitioned LOOP
+    PERFORM ensure_daily_partition('delta_event', d);
+  END LOOP;
+END;
+$$;
+
+INSERT INTO delta_event SELECT * FROM delta_event_unpartitioned;
+DROP TABLE delta_event_unpartitioned;
+
+ALTER SEQUENCE delta_event_id_seq OWNED BY delta_event.id;
+
+-- the partition key has to be part of the primary key
+ALTER TABLE delta_event ADD PRIMARY KEY (as_of_date, id);
+ALTER TABLE delta_event
+  ADD CONSTRAINT delta_event_job_run_id_fkey FOREIGN KEY (job_run_id) REFERENCES job_run(id) ON DELETE CASCADE;
+
+-- serves both the per-run/feed DELETE and the export's ORDER BY entity_key within a day partition
+CREATE INDEX IF NOT EXISTS ix_delta_event_run_feed_key ON delta_event(job_run_id, feed_name, entity_key);
@@ -0,0 +1,20 @@
+-- 128-bit row hash computed in Java while the CSV streams into COPY (loans.ingestion.row-hash=JAVA).
+-- Staging receives it pre-computed; snapshots store it as bytea next to the legacy SHA-256 hex row_hash.
+-- A snapshot row carries exactly one of the two, depending on the mode it was loaded with, so row_hash
+-- becomes nullable. The delta compares like with like and falls back to the payload across the switch-over.
+
+DO $$
+DECLARE
+  f TEXT;
+BEGIN
+  FOREACH f IN ARRAY ARRAY[
+    'loan_master', 'payment_transaction', 'borrower', 'coborrower',
+    'collateral', 'payment_schedule', 'delinquency', 'rate',
+    'escrow', 'modification', 'contact_crm'
+  ] LOOP
+    EXECUTE format('ALTER TABLE %I ADD COLUMN IF NOT EXISTS row_hash128 BYTEA', 'stg_' || f);
+    EXECUTE format('ALTER TABLE %I ADD COLUMN IF NOT EXISTS row_hash128 BYTEA', 'snap_' || f);
+    EXECUTE format('ALTER TABLE %I ALTER COLUMN row_hash DROP NOT NULL', 'snap_' || f);
+  END LOOP;
+END;
+$$;
@@ -0,0 +1,25 @@
+-- Covering index for the key phase of the delta: (as_of_date, pk..) INCLUDE (row_hash, row_hash128).
+-- The I/D/U candidate join reads only keys and hashes, so it can run as an index-only scan on each
+-- day partition instead of reading the full rows; payloads are fetched by PK for the candidates only.
+
+DO $$
+DECLARE
+  t TEXT;
+  pk_cols TEXT;
+BEGIN
+  FOREACH t IN ARRAY ARRAY[
+    'snap_loan_master', 'snap_payment_transaction', 'snap_borrower', 'snap_coborrower',
+    'snap_collateral', 'snap_payment_schedule', 'snap_delinquency', 'snap_rate',
+    'snap_escrow', 'snap_modification', 'snap_contact_crm'
+  ] LOOP
+    SELECT string_agg(quote_ident(a.attname), ',' ORDER BY array_position(i.indkey::int2[], a.attnum))
+      INTO pk_cols
+    FROM pg_index i
+    JOIN pg_attribute a ON a.attrelid = i.indrelid AND a.attnum = ANY (i.indkey)
+    WHERE i.indrelid = t::regclass AND i.indisprimary;
+
+    EXECUTE format('CREATE INDEX IF NOT EXISTS %I ON %I (%s) INCLUDE (row_hash, row_hash128)',
+                   'ix_' || t || '_key_hash', t, pk_cols);
+  END LOOP;
+END;
+$$;
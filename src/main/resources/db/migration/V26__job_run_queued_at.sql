@@ -0,0 +1,3 @@
+-- Runs submitted through the run scheduler are recorded as QUEUED first; started_at is set when they leave the queue.
+ALTER TABLE job_run
+    ADD COLUMN IF NOT EXISTS queued_at TIMESTAMPTZ;
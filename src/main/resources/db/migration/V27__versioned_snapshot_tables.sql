@@ -0,0 +1,51 @@
+-- Sparse snapshot storage (loans.ingestion.snapshot-storage=VERSIONED).
+-- ver_<feed> keeps one row per version of an entity: the snap_<feed> columns without as_of_date, valid on the
+-- days [valid_from, valid_to); the current version has valid_to = 'infinity'. A version is written only when
+-- the row hash changes, so the snapshot as of D is
+--   SELECT ... FROM ver_<feed> WHERE valid_from <= D AND valid_to > D
+
+DO $$
+DECLARE
+  t TEXT;
+  v TEXT;
+  key_cols TEXT;
+BEGIN
+  FOREACH t IN ARRAY ARRAY[
+    'snap_loan_master', 'snap_payment_transaction', 'snap_borrower', 'snap_coborrower',
+    'snap_collateral', 'snap_payment_schedule', 'snap_delinquency', 'snap_rate',
+    'snap_escrow', 'snap_modification', 'snap_contact_crm'
+  ] LOOP
+    v := 'ver_' || substr(t, 6);
+
+    -- business key: the snapshot primary key without as_of_date
+    SELECT string_agg(quote_ident(a.attname), ',' ORDER BY array_position(i.indkey::int2[], a.attnum))
+      INTO key_cols
+    FROM pg_index i
+    JOIN pg_attribute a ON a.attrelid = i.indrelid AND a.attnum = ANY (i.indkey)
+    WHERE i.indrelid = t::regclass AND i.indisprimary AND a.attname <> 'as_of_date';
+
+    EXECUTE format('CREATE TABLE %I (LIKE %I INCLUDING DEFAULTS)', v, t);
+    EXECUTE format('ALTER TABLE %I DROP COLUMN as_of_date', v);
+    EXECUTE format('ALTER TABLE %I ADD COLUMN valid_from DATE NOT NULL, '
+                   'ADD COLUMN valid_to DATE NOT NULL DEFAULT ''infinity''', v);
+    EXECUTE format('ALTER TABLE %I ADD PRIMARY KEY (%s, valid_from)', v, key_cols);
+
+    -- current versions: the comparison side of the nightly load
+    EXECUTE format('CREATE UNIQUE INDEX %I ON %I (%s) INCLUDE (row_hash, row_hash128) WHERE valid_to = ''infinity''',
+                   'ux_' || v || '_current', v, key_cols);
+    -- versions opened / closed on a day: the delta and the retention
+    EXECUTE format('CREATE INDEX %I ON %I (valid_from)', 'ix_' || v || '_valid_from', v);
+    EXECUTE format('CREATE INDEX %I ON %I (valid_to) WHERE valid_to <> ''infinity''', 'ix_' || v || '_valid_to', v);
+  END LOOP;
+END;
+$$;
+
+-- Days applied to the version tables, per feed. Loads must move forward in time: the latest day may be
+-- re-run (its versions are rolled back first), an earlier one is refused.
+CREATE TABLE IF NOT EXISTS snapshot_version_load (
+  feed_name   VARCHAR(64) NOT NULL,
+  as_of_date  DATE NOT NULL,
+  job_run_id  UUID,
+  loaded_at   TIMESTAMPTZ NOT NULL DEFAULT now(),
+  PRIMARY KEY (feed_name, as_of_date)
+);
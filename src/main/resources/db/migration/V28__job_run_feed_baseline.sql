@@ -0,0 +1,15 @@
+-- Per-feed as-of day and the baseline day its delta was compared with (loans.ingestion.baseline).
+ALTER TABLE job_run_feed
+    ADD COLUMN IF NOT EXISTS as_of_date    DATE,
+    ADD COLUMN IF NOT EXISTS baseline_date DATE;
+
+UPDATE job_run_feed f
+SET as_of_date = r.as_of_date
+FROM job_run r
+WHERE r.id = f.job_run_id
+  AND f.as_of_date IS NULL;
+
+-- LAST_SUCCESSFUL baseline: max(as_of_date) of a feed's successful loads before a day, one index probe
+CREATE INDEX IF NOT EXISTS ix_job_run_feed_success_asof
+    ON job_run_feed (feed_name, as_of_date DESC)
+    WHERE status = 'SUCCESS';
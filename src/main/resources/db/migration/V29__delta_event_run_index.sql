@@ -0,0 +1,4 @@
+-- V23 rebuilt delta_event as a partitioned table without ix_delta_event_run (V3). The ON DELETE CASCADE from
+-- job_run and run-scoped deletes without an as_of_date filter look rows up by job_run_id alone; on the
+-- partitioned parent the index is created on every existing and future day partition.
+CREATE INDEX IF NOT EXISTS ix_delta_event_run ON delta_event(job_run_id);
@@ -2,29 +2,65 @@ package com.github.dimitryivaniuta.loansanalytics;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.dimitryivaniuta.loansanalytics.export.Compression;
+import com.github.dimitryivaniuta.loansanalytics.export.DeltaExportService;
+import com.github.dimitryivaniuta.loansanalytics.export.ExportMode;
 import com.github.dimitryivaniuta.loansanalytics.ingest.DeltaRepository;
+import com.github.dimitryivaniuta.loansanalytics.ingest.IngestLockRepository;
 import com.github.dimitryivaniuta.loansanalytics.ingest.IngestionOrchestrator;
+import com.github.dimitryivaniuta.loansanalytics.ingest.JobRunRepository;
+import com.github.dimitryivaniuta.loansanalytics.ingest.SnapshotDeltaMergeRepository;
 import com.github.dimitryivaniuta.loansanalytics.ingest.feed.FeedName;
+import com.github.dimitryivaniuta.loansanalytics.ingest.feed.FeedRegistry;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.DecimalVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.ipc.ArrowStreamReader;
 import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.testcontainers.containers.PostgreSQLContainer;
 import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 @Testcontainers
 @SpringBootTest
@@ -54,9 +90,24 @@ class IngestionOrchestratorIT {
     @Autowired
     IngestionOrchestrator orchestrator;
 
-    @Autowired
+    @MockitoSpyBean
     DeltaRepository deltaRepository;
 
+    @Autowired
+    IngestLockRepository locks;
+
+    @Autowired
+    TransactionTemplate tx;
+
+    @Autowired
+    JobRunRepository jobRuns;
+
+    @Autowired
+    DeltaExportService exportService;
+
+    @Autowired
+    FeedRegistry feedRegistry;
+
     @Autowired
     ObjectMapper objectMapper;
 
@@ -114,6 +165,7 @@ class IngestionOrchestratorIT {
         var loanUpdate = loanDelta.stream().filter(r -> r.op().equals("U") && r.entityKeyJson().contains("L1")).findFirst().orElseThrow();
         JsonNode loanChanged = objectMapper.readTree(loanUpdate.changedFieldsJson());
         assertThat(loanChanged.has("principal_balance")).isTrue();
+        assertThat(loanChanged.has("currency")).isFalse();
         assertThat(new BigDecimal(loanChanged.get("principal_balance").get("before").asText())
                 .setScale(2, RoundingMode.UNNECESSARY))
                 .isEqualTo(new BigDecimal("100.00").setScale(2, RoundingMode.UNNECESSARY));
@@ -155,6 +207,402 @@ class IngestionOrchestratorIT {
         var txDelete = txDelta.stream().filter(r -> r.op().equals("D") && r.entityKeyJson().contains("T2")).findFirst().orElseThrow();
         assertThat(txDelete.afterRowJson()).isNull();
         assertThat(txDelete.beforeRowJson()).contains("\"transaction_id\": \"T2\"");
+
+        // =========================
+        // Export: COPY TO STDOUT produces the same CSV as the row-based path
+        // =========================
+        var viaJdbc = new ByteArrayOutputStream();
+        var viaCopy = new ByteArrayOutputStream();
+        assertThat(exportService.writeCsv(runId, FeedName.LOAN_MASTER, day2, ExportMode.JDBC, viaJdbc).rows()).isEqualTo(3);
+        assertThat(exportService.writeCsv(runId, FeedName.LOAN_MASTER, day2, ExportMode.COPY, viaCopy).rows()).isEqualTo(3);
+        assertThat(viaCopy.toString(StandardCharsets.UTF_8)).isEqualTo(viaJdbc.toString(StandardCharsets.UTF_8));
+
+        // =========================
+        // Export: Arrow IPC stream with typed before_/after_ columns
+        // =========================
+        var viaArrow = new ByteArrayOutputStream();
+        var loanMaster = feedRegistry.get(FeedName.LOAN_MASTER);
+        assertThat(exportService.writeArrow(runId, loanMaster, day2, Compression.NONE, viaArrow).rows()).isEqualTo(3);
+        try (var allocator = new RootAllocator();
+             var reader = new ArrowStreamReader(new ByteArrayInputStream(viaArrow.toByteArray()), allocator)) {
+            var root = reader.getVectorSchemaRoot();
+            assertThat(reader.loadNextBatch()).isTrue();
+            assertThat(root.getRowCount()).isEqualTo(3);
+            var loanIds = (VarCharVector) root.getVector("loan_id");
+            var before = (DecimalVector) root.getVector("before_principal_balance");
+            var after = (DecimalVector) root.getVector("after_principal_balance");
+            for (int i = 0; i < root.getRowCount(); i++) {
+                if ("L1".equals(loanIds.getObject(i).toString())) {
+                    assertThat(before.getObject(i)).isEqualByComparingTo("100.00");
+                    assertThat(after.getObject(i)).isEqualByComparingTo("110.00");
+                }
+            }
+        }
+    }
+
+    @Test
+    void shouldHoldTheFeedLockUntilTheLastDeltaBucketHasCommitted() throws Exception {
+        // PAYMENT_TRANSACTION runs with 4 delta buckets (application.yml)
+        LocalDate day1 = LocalDate.of(2026, 2, 2);
+        LocalDate day2 = LocalDate.of(2026, 2, 3);
+        writePaymentTransaction(day1,
+                paymentTxRow("T1", "L1", "2026-02-02", "2026-02-02", "ACH", "10.00", "EUR", "ONLINE", "R1"),
+                paymentTxRow("T2", "L2", "2026-02-02", "2026-02-02", "CASH", "20.00", "EUR", "BRANCH", "R2")
+        );
+        orchestrator.ingestAndGenerateDelta(day1, Set.of(FeedName.PAYMENT_TRANSACTION));
+        writePaymentTransaction(day2,
+                paymentTxRow("T1", "L1", "2026-02-03", "2026-02-03", "ACH", "11.00", "EUR", "ONLINE", "R1"),
+                paymentTxRow("T3", "L3", "2026-02-03", "2026-02-03", "ACH", "33.00", "EUR", "ONLINE", "R3")
+        );
+
+        // while the first bucket runs, another writer (as another pod would) asks for the same (asOf, feed) lock
+        var secondWriterStarted = new AtomicBoolean();
+        var secondWriterLocked = new CompletableFuture<Long>();
+        var lastBucketDone = new AtomicLong();
+        doAnswer(invocation -> {
+            if (secondWriterStarted.compareAndSet(false, true)) {
+                Thread.ofVirtual().start(() -> {
+                    try {
+                        tx.executeWithoutResult(status -> {
+                            locks.lockFeed(day2, FeedName.PAYMENT_TRANSACTION);
+                            secondWriterLocked.complete(System.nanoTime());
+                        });
+                    } catch (RuntimeException e) {
+                        secondWriterLocked.completeExceptionally(e);
+                    }
+                });
+                Thread.sleep(500);
+            }
+            Object rows = invocation.callRealMethod();
+            lastBucketDone.accumulateAndGet(System.nanoTime(), Math::max);
+            return rows;
+        }).when(deltaRepository).insertDelta(any(), any(), any(), any(), anyInt(), anyInt());
+
+        var runId = orchestrator.ingestAndGenerateDelta(day2, Set.of(FeedName.PAYMENT_TRANSACTION));
+
+        long lockedAt = secondWriterLocked.get(30, TimeUnit.SECONDS);
+        assertThat(lockedAt).isGreaterThan(lastBucketDone.get());
+        assertThat(deltaRepository.findDeltaRows(runId, "PAYMENT_TRANSACTION"))
+                .extracting(DeltaRepository.DeltaEventRow::op)
+                .containsExactlyInAnyOrder("I", "U", "D");
+    }
+
+    @Test
+    void shouldRemoveCommittedBucketsWhenADeltaBucketFails() throws Exception {
+        LocalDate day1 = LocalDate.of(2026, 2, 9);
+        LocalDate day2 = LocalDate.of(2026, 2, 10);
+        writePaymentTransaction(day1,
+                paymentTxRow("T1", "L1", "2026-02-09", "2026-02-09", "ACH", "10.00", "EUR", "ONLINE", "R1"),
+                paymentTxRow("T2", "L2", "2026-02-09", "2026-02-09", "CASH", "20.00", "EUR", "BRANCH", "R2")
+        );
+        orchestrator.ingestAndGenerateDelta(day1, Set.of(FeedName.PAYMENT_TRANSACTION));
+        writePaymentTransaction(day2,
+                paymentTxRow("T1", "L1", "2026-02-10", "2026-02-10", "ACH", "11.00", "EUR", "ONLINE", "R1"),
+                paymentTxRow("T3", "L3", "2026-02-10", "2026-02-10", "ACH", "33.00", "EUR", "ONLINE", "R3"),
+                paymentTxRow("T4", "L4", "2026-02-10", "2026-02-10", "ACH", "44.00", "EUR", "ONLINE", "R4"),
+                paymentTxRow("T5", "L5", "2026-02-10", "2026-02-10", "ACH", "55.00", "EUR", "ONLINE", "R5")
+        );
+        doThrow(new IllegalStateException("bucket 3 failed"))
+                .when(deltaRepository).insertDelta(any(), any(), eq(day2), any(), anyInt(), eq(3));
+
+        assertThatThrownBy(() -> orchestrator.ingestAndGenerateDelta(day2, Set.of(FeedName.PAYMENT_TRANSACTION)))
+                .hasMessageContaining("bucket 3 failed");
+
+        var run = jobRuns.listRuns(day2, day2, 1).getFirst();
+        var runId = (UUID) run.get("id");
+        assertThat(run.get("status")).isEqualTo("FAILED");
+        assertThat(jobRuns.listRunFeeds(runId)).singleElement()
+                .satisfies(feed -> assertThat(feed.get("status")).isEqualTo("FAILED"));
+        assertThat(deltaRepository.findDeltaRows(runId, "PAYMENT_TRANSACTION")).isEmpty();
+    }
+
+    /**
+     * The same pipeline with {@code snapshot-storage=VERSIONED} (a second context on the same database). Each test
+     * starts from empty version tables and seeds them with a DAILY load (the enclosing context) of the day before
+     * its first VERSIONED day, which the LAST_SUCCESSFUL baseline then picks.
+     */
+    @Nested
+    @TestPropertySource(properties = "loans.ingestion.snapshot-storage=VERSIONED")
+    class VersionedSnapshotStorage {
+
+        @Autowired
+        IngestionOrchestrator versioned;
+
+        @Autowired
+        NamedParameterJdbcTemplate jdbc;
+
+        @BeforeEach
+        void emptyVersionTables() {
+            jdbc.getJdbcTemplate().execute("TRUNCATE ver_loan_master, ver_payment_transaction, snapshot_version_load");
+        }
+
+        @Test
+        void shouldSeedTheVersionHistoryFromTheBaselineDailySnapshot() throws Exception {
+            LocalDate day0 = LocalDate.of(2026, 4, 6);
+            LocalDate day1 = LocalDate.of(2026, 4, 7);
+            writeLoanMaster(day0, loan("L1", "100.00"), loan("L2", "200.00"));
+            orchestrator.ingestAndGenerateDelta(day0, Set.of(FeedName.LOAN_MASTER));
+
+            writeLoanMaster(day1, loan("L1", "100.00"), loan("L2", "200.00"));
+            var runId = versioned.ingestAndGenerateDelta(day1, Set.of(FeedName.LOAN_MASTER));
+
+            assertThat(deltaRepository.findDeltaRows(runId, "LOAN_MASTER")).isEmpty();
+            assertThat(versions("L1")).containsExactly("2026-04-06..infinity 100.00");
+            assertThat(versions("L2")).containsExactly("2026-04-06..infinity 200.00");
+            assertThat(loads()).containsExactly(day0, day1);
+            assertThat(jobRuns.listRunFeeds(runId)).singleElement().satisfies(feed -> {
+                assertThat(feed.get("baseline_date")).isEqualTo(java.sql.Date.valueOf(day0));
+                assertThat(feed.get("snapshot_rows")).isEqualTo(0L);
+            });
+        }
+
+        @Test
+        void shouldCloseAndOpenVersionsOfChangedRowsOnly() throws Exception {
+            LocalDate day0 = LocalDate.of(2026, 4, 13);
+            LocalDate day1 = LocalDate.of(2026, 4, 14);
+            writeLoanMaster(day0, loan("L1", "100.00"), loan("L2", "200.00"));
+            orchestrator.ingestAndGenerateDelta(day0, Set.of(FeedName.LOAN_MASTER));
+
+            writeLoanMaster(day1, loan("L1", "110.00"), loan("L2", "200.00"), loan("L3", "300.00"));
+            var runId = versioned.ingestAndGenerateDelta(day1, Set.of(FeedName.LOAN_MASTER));
+
+            assertThat(versions("L1")).containsExactly("2026-04-13..2026-04-14 100.00", "2026-04-14..infinity 110.00");
+            assertThat(versions("L2")).containsExactly("2026-04-13..infinity 200.00");
+            assertThat(versions("L3")).containsExactly("2026-04-14..infinity 300.00");
+            assertThat(jobRuns.listRunFeeds(runId)).singleElement()
+                    .satisfies(feed -> assertThat(feed.get("snapshot_rows")).isEqualTo(2L));
+
+            var delta = deltaRepository.findDeltaRows(runId, "LOAN_MASTER");
+            assertThat(delta).extracting(DeltaRepository.DeltaEventRow::op).containsExactlyInAnyOrder("U", "I");
+            var update = delta.stream().filter(r -> r.op().equals("U")).findFirst().orElseThrow();
+            assertThat(update.entityKeyJson()).contains("L1");
+            JsonNode changed = objectMapper.readTree(update.changedFieldsJson());
+            assertThat(changed.fieldNames()).toIterable().containsExactly("principal_balance");
+            assertThat(changed.get("principal_balance").get("after").decimalValue()).isEqualByComparingTo("110.00");
+        }
+
+        @Test
+        void shouldCloseTheVersionOfADeletedRow() throws Exception {
+            LocalDate day0 = LocalDate.of(2026, 4, 20);
+            LocalDate day1 = LocalDate.of(2026, 4, 21);
+            writeLoanMaster(day0, loan("L1", "100.00"), loan("L2", "200.00"));
+            orchestrator.ingestAndGenerateDelta(day0, Set.of(FeedName.LOAN_MASTER));
+
+            writeLoanMaster(day1, loan("L1", "100.00"));
+            var runId = versioned.ingestAndGenerateDelta(day1, Set.of(FeedName.LOAN_MASTER));
+
+            assertThat(versions("L2")).containsExactly("2026-04-20..2026-04-21 200.00");
+            assertThat(versions("L1")).containsExactly("2026-04-20..infinity 100.00");
+            assertThat(deltaRepository.findDeltaRows(runId, "LOAN_MASTER")).singleElement().satisfies(row -> {
+                assertThat(row.op()).isEqualTo("D");
+                assertThat(row.entityKeyJson()).contains("L2");
+                assertThat(row.beforeRowJson()).contains("\"loan_id\": \"L2\"");
+                assertThat(row.afterRowJson()).isNull();
+            });
+        }
+
+        @Test
+        void shouldRollBackAndReapplyTheLatestDayOnARerun() throws Exception {
+            LocalDate day0 = LocalDate.of(2026, 4, 27);
+            LocalDate day1 = LocalDate.of(2026, 4, 28);
+            writeLoanMaster(day0, loan("L1", "100.00"), loan("L2", "200.00"));
+            orchestrator.ingestAndGenerateDelta(day0, Set.of(FeedName.LOAN_MASTER));
+            writeLoanMaster(day1, loan("L1", "110.00"), loan("L3", "300.00"));
+            versioned.ingestAndGenerateDelta(day1, Set.of(FeedName.LOAN_MASTER));
+
+            // corrected file for the same day: L1 differs again, L2 is back, L3 never existed
+            writeLoanMaster(day1, loan("L1", "120.00"), loan("L2", "200.00"));
+            var rerunId = versioned.ingestAndGenerateDelta(day1, Set.of(FeedName.LOAN_MASTER));
+
+            assertThat(versions("L1")).containsExactly("2026-04-27..2026-04-28 100.00", "2026-04-28..infinity 120.00");
+            assertThat(versions("L2")).containsExactly("2026-04-27..infinity 200.00");
+            assertThat(versions("L3")).isEmpty();
+            assertThat(loads()).containsExactly(day0, day1);
+
+            var delta = deltaRepository.findDeltaRows(rerunId, "LOAN_MASTER");
+            assertThat(delta).singleElement().satisfies(row -> {
+                assertThat(row.op()).isEqualTo("U");
+                JsonNode changed = objectMapper.readTree(row.changedFieldsJson());
+                assertThat(changed.get("principal_balance").get("before").decimalValue()).isEqualByComparingTo("100.00");
+                assertThat(changed.get("principal_balance").get("after").decimalValue()).isEqualByComparingTo("120.00");
+            });
+        }
+
+        @Test
+        void shouldRefuseADayEarlierThanTheLastLoad() throws Exception {
+            LocalDate day0 = LocalDate.of(2026, 5, 4);
+            LocalDate day1 = LocalDate.of(2026, 5, 5);
+            LocalDate day2 = LocalDate.of(2026, 5, 6);
+            writeLoanMaster(day0, loan("L1", "100.00"));
+            orchestrator.ingestAndGenerateDelta(day0, Set.of(FeedName.LOAN_MASTER));
+            writeLoanMaster(day1, loan("L1", "110.00"));
+            versioned.ingestAndGenerateDelta(day1, Set.of(FeedName.LOAN_MASTER));
+            writeLoanMaster(day2, loan("L1", "120.00"));
+            versioned.ingestAndGenerateDelta(day2, Set.of(FeedName.LOAN_MASTER));
+            var before = versions("L1");
+
+            writeLoanMaster(day1, loan("L1", "999.00"));
+            assertThatThrownBy(() -> versioned.ingestAndGenerateDelta(day1, Set.of(FeedName.LOAN_MASTER)))
+                    .hasMessageContaining("cannot apply the earlier day 2026-05-05");
+
+            assertThat(versions("L1")).isEqualTo(before).hasSize(3);
+            assertThat(loads()).containsExactly(day0, day1, day2);
+            assertThat(jobRuns.listRuns(day1, day1, 1).getFirst().get("status")).isEqualTo("FAILED");
+        }
+
+        @Test
+        void shouldProduceTheSameDeltaAsDailyStorageForTheSameFiles() throws Exception {
+            // DAILY on 1-3 June, VERSIONED (seeded by a DAILY load) on 8-10 June, same rows on both sides
+            LocalDate[] daily = {LocalDate.of(2026, 6, 1), LocalDate.of(2026, 6, 2), LocalDate.of(2026, 6, 3)};
+            LocalDate[] versionedDays = {LocalDate.of(2026, 6, 8), LocalDate.of(2026, 6, 9), LocalDate.of(2026, 6, 10)};
+            Set<FeedName> feeds = Set.of(FeedName.LOAN_MASTER, FeedName.PAYMENT_TRANSACTION);
+
+            UUID[] dailyRuns = new UUID[3];
+            UUID[] versionedRuns = new UUID[3];
+            for (int day = 0; day < 3; day++) {
+                for (LocalDate asOf : List.of(daily[day], versionedDays[day])) {
+                    writeDay(day, asOf);
+                }
+                dailyRuns[day] = orchestrator.ingestAndGenerateDelta(daily[day], feeds);
+                versionedRuns[day] = day == 0
+                        ? orchestrator.ingestAndGenerateDelta(versionedDays[day], feeds)
+                        : versioned.ingestAndGenerateDelta(versionedDays[day], feeds);
+            }
+
+            for (int day = 1; day < 3; day++) {
+                for (String feed : List.of("LOAN_MASTER", "PAYMENT_TRANSACTION")) {
+                    var expected = comparableDelta(deltaRepository.findDeltaRows(dailyRuns[day], feed));
+                    assertThat(expected).extracting(row -> row.getFirst().asText()).contains("I", "U", "D");
+                    assertThat(comparableDelta(deltaRepository.findDeltaRows(versionedRuns[day], feed)))
+                            .as("%s day %d", feed, day)
+                            .containsExactlyInAnyOrderElementsOf(expected);
+                }
+            }
+        }
+
+        /**
+         * Day 0 seeds L1, L2 / T1, T2; day 1 updates one row, deletes one and inserts one per feed; day 2 repeats
+         * that on the new rows.
+         */
+        private void writeDay(int day, LocalDate asOf) throws IOException {
+            switch (day) {
+                case 0 -> {
+                    writeLoanMaster(asOf, loan("L1", "100.00"), loan("L2", "200.00"));
+                    writePaymentTransaction(asOf, payment("T1", "10.00"), payment("T2", "20.00"));
+                }
+                case 1 -> {
+                    writeLoanMaster(asOf, loan("L1", "110.00"), loan("L3", "300.00"));
+                    writePaymentTransaction(asOf, payment("T1", "11.00"), payment("T3", "33.00"));
+                }
+                default -> {
+                    writeLoanMaster(asOf, loan("L3", "310.00"), loan("L4", "400.00"));
+                    writePaymentTransaction(asOf, payment("T3", "34.00"), payment("T4", "44.00"));
+                }
+            }
+        }
+
+        /**
+         * Versions of a loan as {@code valid_from..valid_to principal_balance}, oldest first.
+         */
+        private List<String> versions(String loanId) {
+            return jdbc.queryForList("""
+                    SELECT valid_from::text || '..' || valid_to::text || ' ' || principal_balance::text
+                    FROM ver_loan_master WHERE loan_id = :loanId ORDER BY valid_from
+                    """, Map.of("loanId", loanId), String.class);
+        }
+
+        private List<LocalDate> loads() {
+            return jdbc.queryForList("""
+                    SELECT as_of_date FROM snapshot_version_load WHERE feed_name = 'LOAN_MASTER' ORDER BY as_of_date
+                    """, Map.of(), LocalDate.class);
+        }
+    }
+
+    /**
+     * {@code delta.single-pass=true} (LOAN_MASTER has one delta bucket) against the two-statement path of the
+     * enclosing context, same files on different days.
+     */
+    @Nested
+    @TestPropertySource(properties = "loans.ingestion.delta.single-pass=true")
+    class SinglePassDelta {
+
+        @Autowired
+        IngestionOrchestrator singlePass;
+
+        @MockitoSpyBean
+        SnapshotDeltaMergeRepository mergeRepository;
+
+        @Test
+        void shouldMatchTheTwoStatementPathIncludingASameDayRerun() throws Exception {
+            LocalDate[] twoStatement = {LocalDate.of(2026, 7, 6), LocalDate.of(2026, 7, 7)};
+            LocalDate[] merged = {LocalDate.of(2026, 7, 13), LocalDate.of(2026, 7, 14)};
+            Set<FeedName> feeds = Set.of(FeedName.LOAN_MASTER);
+
+            for (LocalDate asOf : List.of(twoStatement[0], merged[0])) {
+                writeLoanMaster(asOf, loan("L1", "100.00"), loan("L2", "200.00"));
+            }
+            orchestrator.ingestAndGenerateDelta(twoStatement[0], feeds);
+            singlePass.ingestAndGenerateDelta(merged[0], feeds);
+
+            for (LocalDate asOf : List.of(twoStatement[1], merged[1])) {
+                writeLoanMaster(asOf, loan("L1", "110.00"), loan("L3", "300.00"));
+            }
+            var expectedRun = orchestrator.ingestAndGenerateDelta(twoStatement[1], feeds);
+            var mergedRun = singlePass.ingestAndGenerateDelta(merged[1], feeds);
+            assertSameOutcome(mergedRun, expectedRun);
+
+            // re-run of the day with a file that no longer has L3: L3 stays in the day's snapshot on both paths
+            for (LocalDate asOf : List.of(twoStatement[1], merged[1])) {
+                writeLoanMaster(asOf, loan("L1", "120.00"), loan("L4", "400.00"));
+            }
+            var expectedRerun = orchestrator.ingestAndGenerateDelta(twoStatement[1], feeds);
+            var mergedRerun = singlePass.ingestAndGenerateDelta(merged[1], feeds);
+            assertSameOutcome(mergedRerun, expectedRerun);
+            assertThat(deltaRepository.findDeltaRows(mergedRerun, "LOAN_MASTER"))
+                    .extracting(r -> r.op() + " " + objectMapper.readTree(r.entityKeyJson()).get("loan_id").asText())
+                    .containsExactlyInAnyOrder("U L1", "D L2", "I L3", "I L4");
+
+            verify(mergeRepository, times(2)).upsertSnapshotAndInsertDelta(any(), any(), eq(merged[1]), eq(merged[0]));
+        }
+
+        private void assertSameOutcome(UUID mergedRun, UUID expectedRun) throws IOException {
+            assertThat(counts(mergedRun)).isEqualTo(counts(expectedRun));
+            assertThat(comparableDelta(deltaRepository.findDeltaRows(mergedRun, "LOAN_MASTER")))
+                    .containsExactlyInAnyOrderElementsOf(
+                            comparableDelta(deltaRepository.findDeltaRows(expectedRun, "LOAN_MASTER")));
+        }
+
+        private List<Object> counts(UUID runId) {
+            var feed = jobRuns.listRunFeeds(runId).getFirst();
+            assertThat(feed.get("status")).isEqualTo("SUCCESS");
+            return List.of(feed.get("staged_rows"), feed.get("snapshot_rows"), feed.get("delta_rows"));
+        }
+    }
+
+    /**
+     * Delta rows as parsed JSON (op, entity key, changed fields, before, after), independent of run and day.
+     */
+    private List<List<JsonNode>> comparableDelta(List<DeltaRepository.DeltaEventRow> rows) throws IOException {
+        var result = new ArrayList<List<JsonNode>>();
+        for (var row : rows) {
+            result.add(List.of(
+                    objectMapper.getNodeFactory().textNode(row.op()),
+                    objectMapper.readTree(row.entityKeyJson()),
+                    objectMapper.readTree(row.changedFieldsJson()),
+                    row.beforeRowJson() == null ? objectMapper.nullNode() : objectMapper.readTree(row.beforeRowJson()),
+                    row.afterRowJson() == null ? objectMapper.nullNode() : objectMapper.readTree(row.afterRowJson())));
+        }
+        return result;
+    }
+
+    private static String loan(String loanId, String principalBalance) {
+        return loanMasterRow(loanId, "B" + loanId, "HOME", "OPEN", "2024-01-01", "2034-01-01", principalBalance,
+                "EUR", "0.035000", "0.8000", "BR1", "NORTH", "2026-01-01T00:00:00Z");
+    }
+
+    private static String payment(String transactionId, String amount) {
+        return paymentTxRow(transactionId, "L1", "2026-01-01", "2026-01-01", "ACH", amount, "EUR", "ONLINE",
+                "R" + transactionId);
     }
 
     private static void writeLoanMaster(LocalDate asOf, String... rows) throws IOException {
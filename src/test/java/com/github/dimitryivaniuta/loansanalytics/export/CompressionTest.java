@@ -0,0 +1,64 @@
+package com.github.dimitryivaniuta.loansanalytics.export;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CompressionTest {
+
+    @Test
+    void parameterWinsOverAcceptEncoding() {
+        assertThat(Compression.negotiate("none", "gzip, zstd")).isEqualTo(Compression.NONE);
+        assertThat(Compression.negotiate("GZIP", "zstd")).isEqualTo(Compression.GZIP);
+        assertThat(Compression.negotiate("zstd", null)).isEqualTo(Compression.ZSTD);
+        assertThatThrownBy(() -> Compression.negotiate("brotli", null)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void prefersZstdThenGzipAndHonoursQZero() {
+        assertThat(Compression.negotiate(null, null)).isEqualTo(Compression.NONE);
+        assertThat(Compression.negotiate(null, "gzip, deflate, br")).isEqualTo(Compression.GZIP);
+        assertThat(Compression.negotiate(null, "gzip;q=0.5, zstd")).isEqualTo(Compression.ZSTD);
+        assertThat(Compression.negotiate(null, "zstd;q=0, gzip")).isEqualTo(Compression.GZIP);
+        assertThat(Compression.negotiate(null, "gzip;q=0")).isEqualTo(Compression.NONE);
+        assertThat(Compression.negotiate(null, "*")).isEqualTo(Compression.GZIP);
+        assertThat(Compression.negotiate(null, "identity")).isEqualTo(Compression.NONE);
+    }
+
+    @Test
+    void picksTheHighestWeightedCodingRegardlessOfListOrder() {
+        assertThat(Compression.negotiate(null, "zstd;q=0.2, gzip;q=0.8")).isEqualTo(Compression.GZIP);
+        assertThat(Compression.negotiate(null, "gzip;q=0.8, zstd;q=0.2")).isEqualTo(Compression.GZIP);
+        assertThat(Compression.negotiate(null, "gzip;q=0.5, zstd;q=0.5")).isEqualTo(Compression.ZSTD);
+        assertThat(Compression.negotiate(null, "gzip, zstd;q=0")).isEqualTo(Compression.GZIP);
+        assertThat(Compression.negotiate(null, "gzip;q=0, zstd;q=0")).isEqualTo(Compression.NONE);
+        assertThat(Compression.negotiate(null, "GZIP;Q=0")).isEqualTo(Compression.NONE);
+        assertThat(Compression.negotiate(null, "zstd;q=0, *")).isEqualTo(Compression.GZIP);
+        assertThat(Compression.negotiate(null, "gzip;q=0, *")).isEqualTo(Compression.NONE);
+        assertThat(Compression.negotiate(null, "*;q=0.3, gzip")).isEqualTo(Compression.GZIP);
+        assertThat(Compression.negotiate(null, "*;q=0")).isEqualTo(Compression.NONE);
+        assertThat(Compression.negotiate(null, "gzip;q=oops")).isEqualTo(Compression.NONE);
+    }
+
+    @Test
+    void gzipRoundTripsAndKeepsCallerStreamOpen() throws Exception {
+        var sink = new ByteArrayOutputStream();
+        var counting = new CountingOutputStream(sink);
+        byte[] csv = "feed_name,op\nLOAN_MASTER,U\n".repeat(1000).getBytes(StandardCharsets.UTF_8);
+
+        try (OutputStream gz = Compression.GZIP.wrap(counting, 9)) {
+            gz.write(csv);
+        }
+
+        assertThat(counting.count()).isEqualTo(sink.size()).isLessThan(csv.length);
+        try (var in = new GZIPInputStream(new ByteArrayInputStream(sink.toByteArray()))) {
+            assertThat(in.readAllBytes()).isEqualTo(csv);
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.github.dimitryivaniuta.loansanalytics.export;
+
+import com.github.dimitryivaniuta.loansanalytics.LoansIngestionProperties;
+import com.github.dimitryivaniuta.loansanalytics.ingest.feed.FeedName;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class DeltaArtifactStoreTest {
+
+    static final LocalDate AS_OF = LocalDate.of(2026, 3, 2);
+    static final FeedName FEED = FeedName.LOAN_MASTER;
+
+    @TempDir
+    Path dir;
+
+    final DeltaExportService exportService = mock(DeltaExportService.class);
+    final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void shouldPublishOneFilePerCompressionWithoutLeavingTempFiles() throws IOException {
+        writesBytes(100, 40);
+        var store = store(1_000, Compression.NONE, Compression.GZIP);
+        UUID run = UUID.randomUUID();
+
+        store.write(run, FEED, AS_OF);
+
+        assertThat(files()).containsExactlyInAnyOrder(
+                DeltaArtifactStore.fileName(run, FEED, Compression.NONE),
+                DeltaArtifactStore.fileName(run, FEED, Compression.GZIP));
+        try (var plain = store.find(run, FEED, Compression.NONE).orElseThrow();
+             var gzip = store.find(run, FEED, Compression.GZIP).orElseThrow()) {
+            assertThat(plain.artifact().path().getFileName().toString()).endsWith(".csv");
+            assertThat(plain.artifact().size()).isEqualTo(100);
+            assertThat(gzip.artifact().path().getFileName().toString()).endsWith(".csv.gz");
+            assertThat(gzip.artifact().size()).isEqualTo(40);
+            assertThat(gzip.artifact().etag()).isNotEqualTo(plain.artifact().etag());
+        }
+        assertThat(store.find(run, FEED, Compression.ZSTD)).isEmpty();
+        assertThat(store.find(run, FeedName.PAYMENT_TRANSACTION, Compression.NONE)).isEmpty();
+        assertThat(store.totalBytes()).isEqualTo(140);
+    }
+
+    @Test
+    void shouldLeaveNeitherTempNorTargetFileWhenTheExportFails() throws IOException {
+        doAnswer(inv -> {
+            inv.getArgument(4, OutputStream.class).write(new byte[10]);
+            throw new IOException("copy failed");
+        }).when(exportService).writeCsvArtifact(any(), any(), any(), any(), any());
+        var store = store(1_000, Compression.NONE);
+        UUID run = UUID.randomUUID();
+
+        assertThatThrownBy(() -> store.write(run, FEED, AS_OF)).hasMessage("copy failed");
+
+        assertThat(files()).isEmpty();
+        assertThat(store.find(run, FEED, Compression.NONE)).isEmpty();
+        assertThat(store.totalBytes()).isZero();
+    }
+
+    @Test
+    void shouldEvictTheLeastRecentlyUsedFileOverBudget() throws IOException {
+        writesBytes(100, 100);
+        var store = store(250, Compression.NONE);
+        UUID run1 = UUID.randomUUID();
+        UUID run2 = UUID.randomUUID();
+        UUID run3 = UUID.randomUUID();
+
+        store.write(run1, FEED, AS_OF);
+        store.write(run2, FEED, AS_OF);
+        store.find(run1, FEED, Compression.NONE).orElseThrow().close();
+        store.write(run3, FEED, AS_OF);
+
+        assertThat(store.find(run2, FEED, Compression.NONE)).isEmpty();
+        assertThat(files()).containsExactlyInAnyOrder(
+                DeltaArtifactStore.fileName(run1, FEED, Compression.NONE),
+                DeltaArtifactStore.fileName(run3, FEED, Compression.NONE));
+        assertThat(store.totalBytes()).isEqualTo(200);
+        assertThat(registry.get("delta.artifact.evictions").counter().count()).isEqualTo(1.0);
+        assertThat(registry.get("delta.artifact.bytes").gauge().value()).isEqualTo(200.0);
+    }
+
+    @Test
+    void shouldMissWhenTheFileWasDeletedBehindTheStore() throws IOException {
+        writesBytes(100, 100);
+        var store = store(1_000, Compression.NONE);
+        UUID run = UUID.randomUUID();
+        store.write(run, FEED, AS_OF);
+
+        Files.delete(dir.resolve(DeltaArtifactStore.fileName(run, FEED, Compression.NONE)));
+
+        assertThat(store.find(run, FEED, Compression.NONE)).isEmpty();
+        assertThat(store.totalBytes()).isZero();
+        assertThat(registry.get("delta.artifact.requests").tag("result", "miss").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void shouldNotEvictAPinnedFileUntilItsLeaseIsClosed() throws IOException {
+        writesBytes(100, 100);
+        var store = store(250, Compression.NONE);
+        UUID run1 = UUID.randomUUID();
+        UUID run2 = UUID.randomUUID();
+        UUID run3 = UUID.randomUUID();
+        UUID run4 = UUID.randomUUID();
+        store.write(run1, FEED, AS_OF);
+        store.write(run2, FEED, AS_OF);
+
+        var lease = store.find(run1, FEED, Compression.NONE).orElseThrow();
+        store.find(run2, FEED, Compression.NONE).orElseThrow().close();
+        // run1 is the least recently used but pinned: run2 goes instead
+        store.write(run3, FEED, AS_OF);
+        assertThat(Files.size(lease.artifact().path())).isEqualTo(100);
+        assertThat(store.find(run2, FEED, Compression.NONE)).isEmpty();
+
+        lease.close();
+        lease.close();
+        store.write(run4, FEED, AS_OF);
+        assertThat(lease.artifact().path()).doesNotExist();
+        assertThat(files()).containsExactlyInAnyOrder(
+                DeltaArtifactStore.fileName(run3, FEED, Compression.NONE),
+                DeltaArtifactStore.fileName(run4, FEED, Compression.NONE));
+    }
+
+    @Test
+    void shouldEvictAFileKeptOverBudgetOnceItsLeaseIsClosed() throws IOException {
+        writesBytes(100, 100);
+        var store = store(150, Compression.NONE);
+        UUID run = UUID.randomUUID();
+        store.write(run, FEED, AS_OF);
+        var lease = store.find(run, FEED, Compression.NONE).orElseThrow();
+
+        // a re-export of the same run grows past the budget while a download still holds the file
+        writesBytes(200, 200);
+        store.write(run, FEED, AS_OF);
+        assertThat(lease.artifact().path()).exists();
+        assertThat(store.totalBytes()).isEqualTo(200);
+
+        lease.close();
+        assertThat(lease.artifact().path()).doesNotExist();
+        assertThat(store.totalBytes()).isZero();
+        assertThat(store.find(run, FEED, Compression.NONE)).isEmpty();
+    }
+
+    @Test
+    void shouldRebuildTheIndexAndDropInterruptedWritesOnLoad() throws IOException {
+        UUID run = UUID.randomUUID();
+        String name = DeltaArtifactStore.fileName(run, FEED, Compression.GZIP);
+        Files.write(dir.resolve(name), new byte[30]);
+        Files.write(dir.resolve(name + "." + UUID.randomUUID() + ".tmp"), new byte[5]);
+
+        var store = store(1_000, Compression.GZIP);
+        store.load();
+
+        assertThat(files()).containsExactly(name);
+        assertThat(store.totalBytes()).isEqualTo(30);
+        try (var lease = store.find(run, FEED, Compression.GZIP).orElseThrow()) {
+            assertThat(lease.artifact().size()).isEqualTo(30);
+        }
+    }
+
+    private DeltaArtifactStore store(long maxBytes, Compression... compressions) {
+        var config = new LoansIngestionProperties.Artifacts(true, dir, DataSize.ofBytes(maxBytes), Set.of(compressions));
+        return new DeltaArtifactStore(exportService, config, registry);
+    }
+
+    private void writesBytes(int plain, int compressed) throws IOException {
+        doAnswer(inv -> {
+            Compression compression = inv.getArgument(3);
+            inv.getArgument(4, OutputStream.class).write(new byte[compression == Compression.NONE ? plain : compressed]);
+            return null;
+        }).when(exportService).writeCsvArtifact(any(), any(), any(), any(), any());
+    }
+
+    private List<String> files() {
+        try (Stream<Path> listing = Files.list(dir)) {
+            return listing.map(p -> p.getFileName().toString()).toList();
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
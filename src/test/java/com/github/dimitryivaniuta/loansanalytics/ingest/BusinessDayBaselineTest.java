@@ -0,0 +1,43 @@
+package com.github.dimitryivaniuta.loansanalytics.ingest;
+
+import com.github.dimitryivaniuta.loansanalytics.ingest.feed.FeedName;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BusinessDayBaselineTest {
+
+    static final Set<DayOfWeek> WEEKEND = Set.of(DayOfWeek.SATURDAY, DayOfWeek.SUNDAY);
+
+    @Test
+    void shouldSkipWeekendAndHolidays() {
+        var calendar = new BusinessDayBaseline(WEEKEND, Set.of(LocalDate.of(2026, 1, 1), LocalDate.of(2026, 1, 2)));
+
+        // Tuesday -> Monday
+        assertThat(calendar.baselineFor(FeedName.LOAN_MASTER, LocalDate.of(2026, 1, 13))).isEqualTo(LocalDate.of(2026, 1, 12));
+        // Monday -> Friday
+        assertThat(calendar.baselineFor(FeedName.LOAN_MASTER, LocalDate.of(2026, 1, 12))).isEqualTo(LocalDate.of(2026, 1, 9));
+        // Monday 5 Jan -> over the weekend and the 1-2 Jan holidays -> Wednesday 31 Dec
+        assertThat(calendar.baselineFor(FeedName.LOAN_MASTER, LocalDate.of(2026, 1, 5))).isEqualTo(LocalDate.of(2025, 12, 31));
+    }
+
+    @Test
+    void shouldUseThePreviousDayWithoutWeekendOrHolidays() {
+        var calendar = new BusinessDayBaseline(Set.of(), Set.of());
+
+        assertThat(calendar.baselineFor(FeedName.LOAN_MASTER, LocalDate.of(2026, 1, 12))).isEqualTo(LocalDate.of(2026, 1, 11));
+        assertThat(BaselineStrategy.PREVIOUS_DAY.baselineFor(FeedName.LOAN_MASTER, LocalDate.of(2026, 1, 12)))
+                .isEqualTo(LocalDate.of(2026, 1, 11));
+    }
+
+    @Test
+    void shouldRejectACalendarWithoutWorkingDays() {
+        assertThatThrownBy(() -> new BusinessDayBaseline(Set.of(DayOfWeek.values()), Set.of()))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
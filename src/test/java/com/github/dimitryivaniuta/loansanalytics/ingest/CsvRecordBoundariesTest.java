@@ -0,0 +1,64 @@
+package com.github.dimitryivaniuta.loansanalytics.ingest;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CsvRecordBoundariesTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void shouldSplitOnlyOnRecordBoundariesOutsideQuotes() throws IOException {
+        var sb = new StringBuilder("id,\"multi\nline header\",amount\n");
+        for (int i = 0; i < 500; i++) {
+            sb.append("T").append(i).append(",\"note, with \"\"quotes\"\"\nand a newline\",").append(i).append('\n');
+        }
+        Path file = dir.resolve("tx.csv");
+        Files.writeString(file, sb.toString());
+
+        byte[] bytes = Files.readAllBytes(file);
+        try (FileChannel ch = FileChannel.open(file)) {
+            long dataStart = CsvRecordBoundaries.headerEnd(ch);
+            assertThat(Files.readString(file).substring(0, (int) dataStart))
+                    .isEqualTo("id,\"multi\nline header\",amount\n");
+
+            List<CsvRecordBoundaries.Range> chunks = CsvRecordBoundaries.split(ch, dataStart, 1000);
+            assertThat(chunks).hasSizeGreaterThan(1);
+            assertThat(chunks.get(0).start()).isEqualTo(dataStart);
+            assertThat(chunks.get(chunks.size() - 1).end()).isEqualTo(ch.size());
+
+            int records = 0;
+            for (int i = 0; i < chunks.size(); i++) {
+                var r = chunks.get(i);
+                if (i > 0) {
+                    assertThat(r.start()).isEqualTo(chunks.get(i - 1).end());
+                }
+                String text = new String(bytes, (int) r.start(), (int) r.length(), StandardCharsets.UTF_8);
+                assertThat(text).matches("(?s)(T\\d+,\"note, with \"\"quotes\"\"\nand a newline\",\\d+\n)+");
+                records += text.split("\n").length / 2;
+            }
+            assertThat(records).isEqualTo(500);
+        }
+    }
+
+    @Test
+    void shouldReturnSingleRangeWhenFileIsSmallerThanChunk() throws IOException {
+        Path file = dir.resolve("small.csv");
+        Files.writeString(file, "a,b\n1,2\n3,4");
+
+        try (FileChannel ch = FileChannel.open(file)) {
+            var chunks = CsvRecordBoundaries.split(ch, CsvRecordBoundaries.headerEnd(ch), 1 << 20);
+            assertThat(chunks).containsExactly(new CsvRecordBoundaries.Range(4, ch.size()));
+        }
+    }
+}
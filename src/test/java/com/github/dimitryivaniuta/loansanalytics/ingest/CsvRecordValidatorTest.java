@@ -0,0 +1,87 @@
+package com.github.dimitryivaniuta.loansanalytics.ingest;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CsvRecordValidatorTest {
+
+    @Test
+    void integersAreCheckedAgainstTheirRange() {
+        assertThat(isInt("2147483647")).isTrue();
+        assertThat(isInt("-2147483648")).isTrue();
+        assertThat(isInt("+12")).isTrue();
+        assertThat(isInt("2147483648")).isFalse();
+        assertThat(isInt("-2147483649")).isFalse();
+        assertThat(isInt("12a")).isFalse();
+        assertThat(isInt("-")).isFalse();
+
+        assertThat(isBigint("9223372036854775807")).isTrue();
+        assertThat(isBigint("-9223372036854775808")).isTrue();
+        assertThat(isBigint("9223372036854775808")).isFalse();
+        assertThat(isBigint("99999999999999999999")).isFalse();
+    }
+
+    @Test
+    void numericsAcceptDecimalExponentAndSpecialValues() {
+        assertThat(isNumeric("100.00")).isTrue();
+        assertThat(isNumeric("-.5")).isTrue();
+        assertThat(isNumeric("5.")).isTrue();
+        assertThat(isNumeric("1e-3")).isTrue();
+        assertThat(isNumeric("NaN")).isTrue();
+        assertThat(isNumeric("-Infinity")).isTrue();
+        assertThat(isNumeric(".")).isFalse();
+        assertThat(isNumeric("1e")).isFalse();
+        assertThat(isNumeric("1,5")).isFalse();
+        assertThat(isNumeric("1.2.3")).isFalse();
+    }
+
+    @Test
+    void datesAndTimestampsMustBeIso() {
+        assertThat(isDate("2024-02-29")).isTrue();
+        assertThat(isDate("2023-02-29")).isFalse();
+        assertThat(isDate("2026-13-01")).isFalse();
+        assertThat(isDate("17/01/2026")).isFalse();
+        assertThat(isDate("2026-01-17T00:00")).isFalse();
+
+        assertThat(isTimestamp("2026-01-17")).isTrue();
+        assertThat(isTimestamp("2026-01-17T00:00:00Z")).isTrue();
+        assertThat(isTimestamp("2026-01-17 08:15:00+00")).isTrue();
+        assertThat(isTimestamp("2026-01-17T08:15:00.123456+05:30")).isTrue();
+        assertThat(isTimestamp("2026-01-17T08:15-0500")).isTrue();
+        assertThat(isTimestamp("2026-01-17T25:00")).isFalse();
+        assertThat(isTimestamp("2026-01-17T08:15:00Zx")).isFalse();
+        assertThat(isTimestamp("2026-01-17T08:15:00.")).isFalse();
+    }
+
+    private static boolean isInt(String s) {
+        byte[] b = bytes(s);
+        return CsvRecordValidator.isInteger(b, 0, b.length, 10, Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    private static boolean isBigint(String s) {
+        byte[] b = bytes(s);
+        return CsvRecordValidator.isInteger(b, 0, b.length, 19, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    private static boolean isNumeric(String s) {
+        byte[] b = bytes(s);
+        return CsvRecordValidator.isNumeric(b, 0, b.length);
+    }
+
+    private static boolean isDate(String s) {
+        byte[] b = bytes(s);
+        return CsvRecordValidator.dateEnd(b, 0, b.length) == b.length;
+    }
+
+    private static boolean isTimestamp(String s) {
+        byte[] b = bytes(s);
+        return CsvRecordValidator.isTimestamp(b, 0, b.length);
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+}
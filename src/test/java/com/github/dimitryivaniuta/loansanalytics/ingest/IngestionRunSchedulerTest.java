@@ -0,0 +1,165 @@
+package com.github.dimitryivaniuta.loansanalytics.ingest;
+
+import com.github.dimitryivaniuta.loansanalytics.LoansIngestionProperties;
+import com.github.dimitryivaniuta.loansanalytics.ingest.feed.FeedName;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IngestionRunSchedulerTest {
+
+    static final LocalDate DAY1 = LocalDate.of(2026, 1, 17);
+    static final LocalDate DAY2 = LocalDate.of(2026, 1, 18);
+    static final LocalDate DAY3 = LocalDate.of(2026, 1, 19);
+
+    final BlockingRuns runs = new BlockingRuns();
+    final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    IngestionRunScheduler scheduler;
+
+    @AfterEach
+    void releaseRuns() {
+        runs.release.countDown();
+        scheduler.shutdown();
+    }
+
+    @Test
+    void shouldMergeRequestsForAWaitingRunAndRefuseWhenTheQueueIsFull() throws Exception {
+        scheduler = new IngestionRunScheduler(runs, new LoansIngestionProperties.Runs(1, 1), registry);
+
+        var first = scheduler.submit(DAY1, Set.of(FeedName.LOAN_MASTER));
+        runs.awaitStarted(first.runId());
+
+        var waiting = scheduler.submit(DAY2, Set.of(FeedName.LOAN_MASTER, FeedName.PAYMENT_TRANSACTION));
+        var duplicate = scheduler.submit(DAY2, Set.of(FeedName.PAYMENT_TRANSACTION, FeedName.LOAN_MASTER));
+        assertThat(waiting.merged()).isFalse();
+        assertThat(duplicate.merged()).isTrue();
+        assertThat(duplicate.runId()).isEqualTo(waiting.runId());
+        assertThat(registry.get("ingest.runs.queued").gauge().value()).isEqualTo(1.0);
+        assertThat(registry.get("ingest.runs.merged").counter().count()).isEqualTo(1.0);
+
+        assertThatThrownBy(() -> scheduler.submit(DAY3, Set.of(FeedName.LOAN_MASTER)))
+                .isInstanceOf(RunQueueFullException.class);
+        assertThat(registry.get("ingest.runs.refused").counter().count()).isEqualTo(1.0);
+
+        runs.release.countDown();
+        duplicate.completion().get(5, TimeUnit.SECONDS);
+        first.completion().get(5, TimeUnit.SECONDS);
+        assertThat(runs.started).containsExactly(first.runId(), waiting.runId());
+        assertThat(runs.queued).containsExactly(first.runId(), waiting.runId());
+    }
+
+    @Test
+    void shouldAbandonTheNewRowWhenAnIdenticalRunWasQueuedMeanwhile() {
+        scheduler = new IngestionRunScheduler(runs, new LoansIngestionProperties.Runs(1, 4), registry);
+
+        var running = scheduler.submit(DAY1, Set.of(FeedName.LOAN_MASTER));
+        runs.awaitStarted(running.runId());
+        List<IngestionRunScheduler.Submission> concurrent = new CopyOnWriteArrayList<>();
+        runs.onQueue = () -> concurrent.add(scheduler.submit(DAY2, Set.of(FeedName.LOAN_MASTER)));
+
+        var late = scheduler.submit(DAY2, Set.of(FeedName.LOAN_MASTER));
+
+        assertThat(late.merged()).isTrue();
+        assertThat(late.runId()).isEqualTo(concurrent.getFirst().runId());
+        assertThat(runs.queued).hasSize(3);
+        assertThat(runs.abandoned).containsOnlyKeys(runs.queued.get(1));
+        assertThat(registry.get("ingest.runs.queued").gauge().value()).isEqualTo(1.0);
+    }
+
+    @Test
+    void shouldNotRunTheSameDayTwiceAtOnceButStartOtherDays() throws Exception {
+        scheduler = new IngestionRunScheduler(runs, new LoansIngestionProperties.Runs(2, 8), registry);
+
+        var loans = scheduler.submit(DAY1, Set.of(FeedName.LOAN_MASTER));
+        runs.awaitStarted(loans.runId());
+        var payments = scheduler.submit(DAY1, Set.of(FeedName.PAYMENT_TRANSACTION));
+        var otherDay = scheduler.submit(DAY2, Set.of(FeedName.LOAN_MASTER));
+        runs.awaitStarted(otherDay.runId());
+
+        assertThat(runs.started).containsExactly(loans.runId(), otherDay.runId());
+        assertThat(registry.get("ingest.runs.active").gauge().value()).isEqualTo(2.0);
+        assertThat(registry.get("ingest.runs.queued").gauge().value()).isEqualTo(1.0);
+
+        runs.release.countDown();
+        payments.completion().get(5, TimeUnit.SECONDS);
+        assertThat(runs.started).containsExactly(loans.runId(), otherDay.runId(), payments.runId());
+    }
+
+    @Test
+    void shouldMarkWaitingRunsAsAbandonedOnShutdown() {
+        scheduler = new IngestionRunScheduler(runs, new LoansIngestionProperties.Runs(1, 4), registry);
+
+        var running = scheduler.submit(DAY1, Set.of(FeedName.LOAN_MASTER));
+        runs.awaitStarted(running.runId());
+        var waiting = scheduler.submit(DAY2, Set.of(FeedName.LOAN_MASTER));
+
+        scheduler.shutdown();
+
+        assertThat(runs.abandoned).containsOnlyKeys(waiting.runId());
+        assertThat(waiting.completion()).isCompletedExceptionally();
+        assertThatThrownBy(() -> scheduler.submit(DAY3, Set.of(FeedName.LOAN_MASTER)))
+                .isInstanceOf(RunQueueFullException.class);
+    }
+
+    /**
+     * Runs block until {@link #release} is counted down.
+     */
+    static final class BlockingRuns implements IngestionRunScheduler.Runs {
+
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<UUID> started = new CopyOnWriteArrayList<>();
+        final Map<UUID, String> abandoned = new ConcurrentHashMap<>();
+        final List<UUID> queued = new CopyOnWriteArrayList<>();
+        volatile Runnable onQueue;
+
+        @Override
+        public UUID queue(LocalDate asOf) {
+            UUID runId = UUID.randomUUID();
+            queued.add(runId);
+            Runnable hook = onQueue;
+            onQueue = null;
+            if (hook != null) {
+                hook.run();
+            }
+            return runId;
+        }
+
+        @Override
+        public void run(UUID runId, LocalDate asOf, Set<FeedName> feeds) {
+            started.add(runId);
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void abandon(UUID runId, String reason) {
+            abandoned.put(runId, reason);
+        }
+
+        void awaitStarted(UUID runId) {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (!started.contains(runId)) {
+                if (System.nanoTime() > deadline) {
+                    throw new AssertionError("run " + runId + " did not start");
+                }
+                Thread.onSpinWait();
+            }
+        }
+    }
+}
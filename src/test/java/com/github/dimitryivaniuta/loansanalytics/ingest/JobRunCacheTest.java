@@ -0,0 +1,98 @@
+package com.github.dimitryivaniuta.loansanalytics.ingest;
+
+import com.github.dimitryivaniuta.loansanalytics.LoansIngestionProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JobRunCacheTest {
+
+    static final LocalDate AS_OF = LocalDate.of(2026, 1, 17);
+
+    final CountingRepository repo = new CountingRepository();
+    final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    final JobRunCache cache = new JobRunCache(repo, properties(), registry);
+
+    @Test
+    void shouldServeRepeatedLookupsFromMemoryUntilTheRunFinishes() {
+        UUID first = UUID.randomUUID();
+        repo.latest = first;
+
+        assertThat(cache.findLatestSuccessfulRunId(AS_OF)).isEqualTo(first);
+        assertThat(cache.findLatestSuccessfulRunId(AS_OF)).isEqualTo(first);
+        assertThat(repo.latestLookups.get()).isEqualTo(1);
+
+        UUID second = UUID.randomUUID();
+        repo.latest = second;
+        cache.evictRun(second);
+        assertThat(cache.findLatestSuccessfulRunId(AS_OF)).isEqualTo(first);
+
+        cache.evictFinishedRun(second);
+        assertThat(cache.findLatestSuccessfulRunId(AS_OF)).isEqualTo(second);
+        assertThat(repo.latestLookups.get()).isEqualTo(2);
+
+        assertThat(registry.get("cache.gets").tag("cache", "job-run.latest-successful").tag("result", "hit")
+                .functionCounter().count()).isEqualTo(2.0);
+    }
+
+    @Test
+    void shouldCacheMissingRunsAndEvictFeedListsPerRun() {
+        UUID runId = UUID.randomUUID();
+
+        assertThat(cache.getRun(runId)).isNull();
+        assertThat(cache.getRun(runId)).isNull();
+        assertThat(repo.runLookups.get()).isEqualTo(1);
+
+        cache.listRunFeeds(runId);
+        cache.listRunFeeds(runId);
+        cache.evictRunFeeds(UUID.randomUUID());
+        cache.listRunFeeds(runId);
+        assertThat(repo.feedLookups.get()).isEqualTo(1);
+
+        cache.evictRunFeeds(runId);
+        cache.listRunFeeds(runId);
+        assertThat(repo.feedLookups.get()).isEqualTo(2);
+    }
+
+    private static LoansIngestionProperties properties() {
+        return new LoansIngestionProperties(null, false, null, null, 0, null, null, null, null, null, false,
+                null, null, null, null, null);
+    }
+
+    static final class CountingRepository extends JobRunRepository {
+
+        final AtomicInteger latestLookups = new AtomicInteger();
+        final AtomicInteger runLookups = new AtomicInteger();
+        final AtomicInteger feedLookups = new AtomicInteger();
+        volatile UUID latest;
+
+        CountingRepository() {
+            super(null);
+        }
+
+        @Override
+        public UUID findLatestSuccessfulRunId(LocalDate asOf) {
+            latestLookups.incrementAndGet();
+            return latest;
+        }
+
+        @Override
+        public Map<String, Object> getRun(UUID id) {
+            runLookups.incrementAndGet();
+            return null;
+        }
+
+        @Override
+        public List<Map<String, Object>> listRunFeeds(UUID runId) {
+            feedLookups.incrementAndGet();
+            return List.of();
+        }
+    }
+}
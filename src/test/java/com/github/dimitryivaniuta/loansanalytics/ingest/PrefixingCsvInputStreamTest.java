@@ -0,0 +1,150 @@
+package com.github.dimitryivaniuta.loansanalytics.ingest;
+
+import com.github.dimitryivaniuta.loansanalytics.ingest.ColumnTypeCatalog.ColumnType;
+import com.github.dimitryivaniuta.loansanalytics.ingest.feed.FeedDefinition;
+import com.github.dimitryivaniuta.loansanalytics.ingest.feed.FeedName;
+import com.github.dimitryivaniuta.loansanalytics.ingest.feed.FeedRegistry;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PrefixingCsvInputStreamTest {
+
+    private static final UUID RUN_ID = UUID.fromString("00000000-0000-0000-0000-000000000001");
+    private static final LocalDate AS_OF = LocalDate.of(2026, 1, 17);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void shouldPrefixHeaderAndRecordsKeepingQuotedNewlines() throws IOException {
+        Path file = write("tx,file.csv",
+                "transaction_id,reference\n" +
+                "T1,\"line one\nline two\"\n" +
+                "\n" +
+                "T2,\"say \"\"hi\"\"\"\r\n" +
+                "T3,last");
+
+        String expectedPrefix = RUN_ID + ",2026-01-17,\"tx,file.csv\",";
+        String expected =
+                "job_run_id,as_of_date,source_file,transaction_id,reference\n" +
+                expectedPrefix + "T1,\"line one\nline two\"\n" +
+                expectedPrefix + "T2,\"say \"\"hi\"\"\"\r\n" +
+                expectedPrefix + "T3,last";
+
+        try (InputStream in = new PrefixingCsvInputStream(file, RUN_ID, AS_OF, "tx,file.csv")) {
+            assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo(expected);
+        }
+        try (InputStream in = new PrefixingCsvInputStream(file, RUN_ID, AS_OF, "tx,file.csv")) {
+            assertThat(readByteByByte(in)).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void shouldStreamMidFileRangeWithoutHeader() throws IOException {
+        String header = "loan_id,status\n";
+        Path file = write("loans.csv", header + "L1,OPEN\nL2,CLOSED\n");
+        byte[] prefix = PrefixingCsvInputStream.rowPrefix(RUN_ID, AS_OF, "loans.csv");
+
+        try (InputStream in = new PrefixingCsvInputStream(file, header.length(), Files.size(file), false, prefix)) {
+            assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo(
+                    RUN_ID + ",2026-01-17,loans.csv,L1,OPEN\n" +
+                    RUN_ID + ",2026-01-17,loans.csv,L2,CLOSED\n");
+        }
+    }
+
+    @Test
+    void shouldAddRowHashColumnIndependentOfFileColumnOrder() throws IOException {
+        List<String> dataColumns = List.of("loan_id", "status", "note");
+        Path ordered = write("a.csv", "loan_id,status,note\nL1,OPEN,\"multi\nline\"\nL2,CLOSED,\n");
+        Path swapped = write("b.csv", "status,loan_id,note\r\nOPEN,L1,\"multi\nline\"\r\nCLOSED,L2,");
+        byte[] prefix = PrefixingCsvInputStream.rowPrefix(RUN_ID, AS_OF, "f.csv");
+
+        String a;
+        try (InputStream in = new PrefixingCsvInputStream(ordered, 0, Long.MAX_VALUE, true, prefix,
+                new RowHasher(dataColumns, List.of("loan_id", "status", "note")))) {
+            a = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        String b;
+        try (InputStream in = new PrefixingCsvInputStream(swapped, 0, Long.MAX_VALUE, true, prefix,
+                new RowHasher(dataColumns, List.of("status", "loan_id", "note")))) {
+            b = readByteByByte(in);
+        }
+
+        assertThat(a).startsWith("job_run_id,as_of_date,source_file,row_hash128,loan_id,status,note\n");
+        assertThat(a).contains(",L1,OPEN,\"multi\nline\"\n").contains(",L2,CLOSED,\n");
+        assertThat(hashes(a)).hasSize(2).doesNotHaveDuplicates().isEqualTo(hashes(b));
+    }
+
+    @Test
+    void shouldRouteInvalidRecordsToRejectSink() throws IOException {
+        FeedDefinition feed = new FeedRegistry().get(FeedName.PAYMENT_TRANSACTION);
+        List<ColumnType> types = feed.dataColumns().stream()
+                .map(c -> new ColumnType(c, c.equals("amount") ? "numeric" : c.endsWith("_date") ? "date" : "text", null, null))
+                .toList();
+        var validator = new CsvRecordValidator(feed, types, List.of("transaction_id", "transaction_date", "amount"));
+        Path file = write("tx.csv", "transaction_id,transaction_date,amount\n" +
+                "T1,2026-01-17,10.00\n" +
+                ",2026-01-17,1\n" +
+                "T3,2026-02-30,1\n" +
+                "T4,2026-01-17,\"1,5\"\n" +
+                "T5,2026-01-17\n" +
+                "T6,,\n");
+        byte[] prefix = PrefixingCsvInputStream.rowPrefix(RUN_ID, AS_OF, "tx.csv");
+
+        List<String> rejected = new ArrayList<>();
+        String out;
+        try (InputStream in = new PrefixingCsvInputStream(file, 0, Long.MAX_VALUE, true, prefix, null, validator,
+                (rec, off, len, reason) -> rejected.add(new String(rec, off, len, StandardCharsets.UTF_8) + " -> " + reason))) {
+            out = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+
+        assertThat(out).isEqualTo(
+                "job_run_id,as_of_date,source_file,transaction_id,transaction_date,amount\n" +
+                RUN_ID + ",2026-01-17,tx.csv,T1,2026-01-17,10.00\n" +
+                RUN_ID + ",2026-01-17,tx.csv,T6,,\n");
+        assertThat(rejected).containsExactly(
+                ",2026-01-17,1 -> transaction_id: primary key column is empty",
+                "T3,2026-02-30,1 -> transaction_date: invalid date '2026-02-30'",
+                "T4,2026-01-17,\"1,5\" -> amount: invalid numeric '1,5'",
+                "T5,2026-01-17 -> expected 3 fields, got 2");
+    }
+
+    private static List<String> hashes(String copyInput) {
+        Matcher m = Pattern.compile(",(\\\\x[0-9a-f]{32}),").matcher(copyInput);
+        List<String> out = new ArrayList<>();
+        while (m.find()) {
+            out.add(m.group(1));
+        }
+        return out;
+    }
+
+    private Path write(String name, String content) throws IOException {
+        Path p = dir.resolve(name);
+        Files.writeString(p, content);
+        return p;
+    }
+
+    private static String readByteByByte(InputStream in) throws IOException {
+        var out = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) >= 0) {
+            out.write(b);
+        }
+        return out.toString(StandardCharsets.UTF_8);
+    }
+}
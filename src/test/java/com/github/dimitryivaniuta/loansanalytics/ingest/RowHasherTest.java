@@ -0,0 +1,54 @@
+package com.github.dimitryivaniuta.loansanalytics.ingest;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HexFormat;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RowHasherTest {
+
+    @Test
+    void murmur3MatchesReferenceVectors() {
+        assertThat(hex(murmur(""))).isEqualTo("00000000000000000000000000000000");
+        assertThat(hex(murmur("hello"))).isEqualTo("029bbd41b3a7d8cb191dae486a901e5b");
+        assertThat(hex(murmur("The quick brown fox jumps over the lazy dog"))).isEqualTo("6c1b07bc7bbc4be347939ac4a93c437a");
+    }
+
+    @Test
+    void hashIsCanonicalAcrossColumnOrderQuotingAndLineEndings() {
+        var dataColumns = List.of("a", "b", "c");
+        var abc = new RowHasher(dataColumns, List.of("a", "b", "c"));
+        var cab = new RowHasher(dataColumns, List.of("c", "a", "b"));
+
+        assertThat(hash(abc, "1,x,\"y,\"\"z\"")).isEqualTo(hash(cab, "\"y,\"\"z\",1,x\r"));
+        assertThat(hash(abc, "1,x,y")).isEqualTo(hash(abc, "\"1\",x,y"));
+    }
+
+    @Test
+    void nullEmptyAndMissingColumnsAreDistinguished() {
+        var dataColumns = List.of("a", "b");
+        var ab = new RowHasher(dataColumns, List.of("a", "b"));
+        var onlyA = new RowHasher(dataColumns, List.of("a"));
+
+        assertThat(hash(ab, "1,")).isNotEqualTo(hash(ab, "1,\"\""));
+        assertThat(hash(ab, "1,")).isEqualTo(hash(onlyA, "1"));
+        assertThat(hash(ab, "1,2")).isNotEqualTo(hash(ab, "12,"));
+    }
+
+    private static byte[] murmur(String s) {
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        return RowHasher.murmur3x64x128(b, 0, b.length);
+    }
+
+    private static String hash(RowHasher hasher, String record) {
+        byte[] b = record.getBytes(StandardCharsets.UTF_8);
+        return hex(hasher.hash(b, 0, b.length));
+    }
+
+    private static String hex(byte[] b) {
+        return HexFormat.of().formatHex(b);
+    }
+}